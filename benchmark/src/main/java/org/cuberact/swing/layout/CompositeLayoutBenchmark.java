@@ -0,0 +1,171 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.swing.JComponent;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CompositeLayoutBenchmark
+ * <p>
+ * JMH benchmark of size (computeSize), placement (computeLayout) and full layout pass (layout) over several composite shapes.
+ * Runs headless, widgets are plain lightweight components with fixed min/pref/max size. Nested composites are measured
+ * by {@link NestedCompositeBenchmark}.
+ * </p>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class CompositeLayoutBenchmark {
+
+    public enum Shape {
+        GRID, COLSPAN, UNIFORM, EXPAND
+    }
+
+    @Param({"GRID", "COLSPAN", "UNIFORM", "EXPAND"})
+    public Shape shape;
+
+    @Param({"10", "100"})
+    public int rows;
+
+    @Param({"5", "20"})
+    public int columns;
+
+    private Composite composite;
+    private CompositeLayout layout;
+    private final List<CompositeLayout> allLayouts = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        System.setProperty("java.awt.headless", "true");
+        allLayouts.clear();
+        composite = build(shape, rows, columns, allLayouts);
+        layout = composite.getCompositeLayout();
+        Dimension pref = composite.getPreferredSize();
+        composite.setSize(pref.width + 100, pref.height + 100);
+        layout.layout();
+    }
+
+    @Benchmark
+    public Dimension computeSize() {
+        invalidateAll();
+        layout.computeSize();
+        return layout.getPrefSize();
+    }
+
+    @Benchmark
+    public CompositeLayout computeLayout() {
+        layout.computeLayout();
+        return layout;
+    }
+
+    @Benchmark
+    public CompositeLayout layout() {
+        invalidateAll();
+        layout.layout();
+        return layout;
+    }
+
+    private void invalidateAll() {
+        invalidateAll(allLayouts);
+    }
+
+    /**
+     * Widgets are measured and layouts are solved again in next pass.
+     */
+    static void invalidateAll(List<CompositeLayout> layouts) {
+        for (int i = 0, n = layouts.size(); i < n; i++) {
+            layouts.get(i).invalidateAllMeasures();
+        }
+    }
+
+    static Composite build(Shape shape, int rows, int columns, List<CompositeLayout> layouts) {
+        Composite composite = new Composite();
+        layouts.add(composite.getCompositeLayout());
+        composite.pad(5);
+        composite.defaults().space(3);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < columns; c++) {
+                Cell<?> cell = composite.addCell(widget(r, c));
+                switch (shape) {
+                    case COLSPAN:
+                        if (r % 2 == 0 && c == 0) {
+                            cell.colspan(columns);
+                            c = columns;
+                        } else if (c % 3 == 0 && c + 2 < columns) {
+                            cell.colspan(2);
+                            c++;
+                        }
+                        break;
+                    case UNIFORM:
+                        cell.uniform();
+                        break;
+                    case EXPAND:
+                        cell.expand().fill();
+                        break;
+                    default:
+                        break;
+                }
+            }
+            composite.row();
+        }
+        return composite;
+    }
+
+    private static Component widget(int row, int column) {
+        JComponent widget = new JComponent() {
+        };
+        int width = 20 + (row * 7 + column * 13) % 60;
+        int height = 10 + (row * 5 + column * 3) % 20;
+        widget.setMinimumSize(new Dimension(width / 2, height / 2));
+        widget.setPreferredSize(new Dimension(width, height));
+        widget.setMaximumSize(new Dimension(width * 4, height * 2));
+        return widget;
+    }
+}
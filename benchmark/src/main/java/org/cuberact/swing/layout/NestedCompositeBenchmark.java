@@ -0,0 +1,116 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.Dimension;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * NestedCompositeBenchmark
+ * <p>
+ * JMH benchmark of size (computeSize), placement (computeLayout) and full layout pass (layout) of nested composites.
+ * Each level is grid of given rows and columns with the next level in its last row, depth is count of levels.
+ * </p>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class NestedCompositeBenchmark {
+
+    @Param({"10"})
+    public int rows;
+
+    @Param({"5"})
+    public int columns;
+
+    @Param({"1", "3", "6"})
+    public int depth;
+
+    private Composite composite;
+    private CompositeLayout layout;
+    private final List<CompositeLayout> allLayouts = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        System.setProperty("java.awt.headless", "true");
+        allLayouts.clear();
+        composite = nested(depth);
+        layout = composite.getCompositeLayout();
+        Dimension pref = composite.getPreferredSize();
+        composite.setSize(pref.width + 100, pref.height + 100);
+        layout.layout();
+    }
+
+    @Benchmark
+    public Dimension computeSize() {
+        CompositeLayoutBenchmark.invalidateAll(allLayouts);
+        layout.computeSize();
+        return layout.getPrefSize();
+    }
+
+    @Benchmark
+    public CompositeLayout computeLayout() {
+        layout.computeLayout();
+        return layout;
+    }
+
+    @Benchmark
+    public CompositeLayout layout() {
+        CompositeLayoutBenchmark.invalidateAll(allLayouts);
+        layout.layout();
+        return layout;
+    }
+
+    private Composite nested(int depth) {
+        Composite composite = CompositeLayoutBenchmark.build(CompositeLayoutBenchmark.Shape.GRID, rows, columns, allLayouts);
+        if (depth > 1) {
+            Composite child = nested(depth - 1);
+            composite.addCell(child).colspan(columns).expandX().fillX();
+        }
+        return composite;
+    }
+}
@@ -27,6 +27,8 @@
 
 package org.cuberact.swing.layout;
 
+import javax.swing.border.Border;
+import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.awt.Insets;
@@ -37,6 +39,9 @@ import java.awt.Rectangle;
  * <p>
  * based on EsotericSoftware/TableLayout. Added new features and improved for Swing.
  * </p>
+ * <p>
+ * Setters of cell added to composite must be called on EDT (as other Swing calls), they invalidate and revalidate the composite.
+ * </p>
  *
  * @author Michal Nikodim (michal.nikodim@gmail.com), original made by Nathan Sweet
  * @see <a href="https://github.com/EsotericSoftware/tablelayout">EsotericSoftware/TableLayout</a>
@@ -53,19 +58,20 @@ public class Cell<T extends Component> {
     private Integer minWidth, minHeight;
     private Integer prefWidth, prefHeight;
     private Integer maxWidth, maxHeight;
-    private boolean rowEnd;
+    boolean rowEnd;
     final T widget;
     int spaceTop, spaceLeft, spaceBottom, spaceRight;
     int padTop, padLeft, padBottom, padRight;
     boolean fillX, fillY;
     boolean expandX, expandY;
     int align;
-    int colspan;
+    int colspan, rowspan;
     boolean uniformX, uniformY;
-    int widgetX, widgetY, widgetWidth, widgetHeight;
-    int column, row;
-    int cellAboveIndex = -1;
-    int computedPadTop, computedPadLeft, computedPadBottom, computedPadRight;
+    SizeProvider sizeProvider;
+    Color background;
+    Border border;
+    CompositeLayout layout;
+    int index = -1;
 
     public Cell() { //default cell
         widget = null;
@@ -89,6 +95,7 @@ public class Cell<T extends Component> {
         expandX = false;
         expandY = false;
         colspan = 1;
+        rowspan = 1;
         uniformX = false;
         uniformY = false;
     }
@@ -120,8 +127,12 @@ public class Cell<T extends Component> {
             this.expandX = defaultCell.expandX;
             this.expandY = defaultCell.expandY;
             this.colspan = defaultCell.colspan;
+            this.rowspan = defaultCell.rowspan;
             this.uniformX = defaultCell.uniformX;
             this.uniformY = defaultCell.uniformY;
+            this.sizeProvider = defaultCell.sizeProvider;
+            this.background = defaultCell.background;
+            this.border = defaultCell.border;
         }
     }
 
@@ -132,6 +143,7 @@ public class Cell<T extends Component> {
         prefHeight = height;
         maxWidth = width;
         maxHeight = height;
+        invalidateMeasure();
         return this;
     }
 
@@ -139,6 +151,7 @@ public class Cell<T extends Component> {
         minWidth = width;
         prefWidth = width;
         maxWidth = width;
+        invalidateMeasure();
         return this;
     }
 
@@ -146,54 +159,64 @@ public class Cell<T extends Component> {
         minHeight = height;
         prefHeight = height;
         maxHeight = height;
+        invalidateMeasure();
         return this;
     }
 
     public Cell<T> minSize(Integer width, Integer height) {
         minWidth = width;
         minHeight = height;
+        invalidateMeasure();
         return this;
     }
 
     public Cell<T> minWidth(Integer minWidth) {
         this.minWidth = minWidth;
+        invalidateMeasure();
         return this;
     }
 
     public Cell<T> minHeight(Integer minHeight) {
         this.minHeight = minHeight;
+        invalidateMeasure();
         return this;
     }
 
     public Cell<T> prefSize(Integer width, Integer height) {
         prefWidth = width;
         prefHeight = height;
+        invalidateMeasure();
         return this;
     }
 
     public Cell<T> prefWidth(Integer prefWidth) {
         this.prefWidth = prefWidth;
+        invalidateMeasure();
         return this;
     }
 
     public Cell<T> prefHeight(Integer prefHeight) {
         this.prefHeight = prefHeight;
+        invalidateMeasure();
         return this;
     }
 
     public Cell<T> maxSize(Integer width, Integer height) {
         maxWidth = width;
         maxHeight = height;
+        invalidateMeasure();
         return this;
     }
 
     public Cell<T> maxWidth(Integer maxWidth) {
         this.maxWidth = maxWidth;
+        invalidateMeasure();
         return this;
     }
 
     public Cell<T> maxHeight(Integer maxHeight) {
         this.maxHeight = maxHeight;
+        invalidateMeasure();
         return this;
     }
 
@@ -202,6 +225,7 @@ public class Cell<T extends Component> {
         spaceLeft = space;
         spaceBottom = space;
         spaceRight = space;
+        invalidateConstraint();
         return this;
     }
 
@@ -210,26 +234,31 @@ public class Cell<T extends Component> {
         spaceLeft = left;
         spaceBottom = bottom;
         spaceRight = right;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> spaceTop(int spaceTop) {
         this.spaceTop = spaceTop;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> spaceLeft(int spaceLeft) {
         this.spaceLeft = spaceLeft;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> spaceBottom(int spaceBottom) {
         this.spaceBottom = spaceBottom;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> spaceRight(int spaceRight) {
         this.spaceRight = spaceRight;
+        invalidateConstraint();
         return this;
     }
 
@@ -242,70 +271,83 @@ public class Cell<T extends Component> {
         padLeft = left;
         padBottom = bottom;
         padRight = right;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> padTop(int padTop) {
         this.padTop = padTop;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> padLeft(int padLeft) {
         this.padLeft = padLeft;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> padBottom(int padBottom) {
         this.padBottom = padBottom;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> padRight(int padRight) {
         this.padRight = padRight;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> fill() {
         fillX = true;
         fillY = true;
+        invalidatePlacement();
         return this;
     }
 
     public Cell<T> fillX() {
         fillX = true;
+        invalidatePlacement();
         return this;
     }
 
     public Cell<T> fillY() {
         fillY = true;
+        invalidatePlacement();
         return this;
     }
 
     public Cell<T> fill(boolean x, boolean y) {
         fillX = x;
         fillY = y;
+        invalidatePlacement();
         return this;
     }
 
     public Cell<T> expand() {
         expandX = true;
         expandY = true;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> expandX() {
         expandX = true;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> expandY() {
         expandY = true;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> expand(boolean x, boolean y) {
         expandX = x;
         expandY = y;
+        invalidateConstraint();
         return this;
     }
 
@@ -318,41 +360,116 @@ public class Cell<T extends Component> {
      */
     public Cell<T> align(int align) {
         this.align = align;
+        invalidatePlacement();
         return this;
     }
 
     public Cell<T> colspan(int colspan) {
-        this.colspan = colspan;
+        if (this.colspan != colspan) {
+            this.colspan = colspan;
+            invalidateStructure();
+        }
+        return this;
+    }
+
+    /**
+     * Joins rows. Cell occupies its columns also in following rows, cells of following rows skip these columns.
+     */
+    public Cell<T> rowspan(int rowspan) {
+        if (this.rowspan != rowspan) {
+            this.rowspan = rowspan;
+            invalidateStructure();
+        }
+        return this;
+    }
+
+    /**
+     * Sizes of widget are taken from given provider instead of widget (overrides provider of composite). Null removes it.
+     */
+    public Cell<T> sizeProvider(SizeProvider sizeProvider) {
+        if (this.sizeProvider != sizeProvider) {
+            this.sizeProvider = sizeProvider;
+            invalidateMeasure();
+        }
+        return this;
+    }
+
+    /**
+     * Background of cell painted by composite (cell area without spacing), no wrapper component is needed. Null removes it.
+     */
+    public Cell<T> background(Color background) {
+        if (this.background != background) {
+            this.background = background;
+            repaint();
+        }
+        return this;
+    }
+
+    /**
+     * Border of cell painted by composite around cell area (without spacing). Insets of border are added to pad of cell. Null removes it.
+     * Insets are taken (for composite as component of border) when cell is loaded, after change of insets of mutable border
+     * set the border again.
+     */
+    public Cell<T> border(Border border) {
+        this.border = border;
+        invalidateConstraint(); // also the same border, its insets could change
         return this;
     }
 
     public Cell<T> uniform() {
         uniformX = true;
         uniformY = true;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> uniformX() {
         uniformX = true;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> uniformY() {
         uniformY = true;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> uniform(boolean x, boolean y) {
         uniformX = x;
         uniformY = y;
+        invalidateConstraint();
         return this;
     }
 
     public Cell<T> rowEnd(boolean rowEnd) {
-        this.rowEnd = rowEnd;
+        if (this.rowEnd != rowEnd) {
+            this.rowEnd = rowEnd;
+            invalidateStructure();
+        }
         return this;
     }
 
+    private void invalidateStructure() {
+        if (layout != null) layout.invalidateStructure();
+    }
+
+    private void invalidateMeasure() {
+        if (layout != null) layout.invalidateMeasure(index);
+    }
+
+    private void invalidateConstraint() {
+        if (layout != null) layout.invalidateConstraint(index);
+    }
+
+    private void invalidatePlacement() {
+        if (layout != null) layout.invalidatePlacement(index);
+    }
+
+    private void repaint() {
+        if (layout != null) layout.repaint();
+    }
+
     public T getWidget() {
         return widget;
     }
@@ -362,25 +479,43 @@ public class Cell<T extends Component> {
     }
 
     public Size getSize() {
-        Size size = new Size();
+        return getSize(new Size());
+    }
+
+    /**
+     * Same as {@link #getSize()}, but result is written to given instance (no allocation in layout pass).
+     */
+    public Size getSize(Size size) {
+        SizeProvider provider = getEffectiveSizeProvider();
+        if (provider != null && provider.getSize(widget, size)) {
+            return getSize(size, size.min, size.pref, size.max);
+        }
         Dimension widgetMinSize = null;
         if (widget != null && (minWidth == null || minHeight == null)) {
             widgetMinSize = widget.getMinimumSize();
         }
-        size.min.width = minWidth == null ? (widgetMinSize == null ? 0 : widgetMinSize.width) : minWidth;
-        size.min.height = minHeight == null ? (widgetMinSize == null ? 0 : widgetMinSize.height) : minHeight;
-
         Dimension widgetPrefSize = null;
         if (widget != null && (prefWidth == null || prefHeight == null)) {
             widgetPrefSize = widget.getPreferredSize();
         }
-        size.pref.width = prefWidth == null ? (widgetPrefSize == null ? 0 : widgetPrefSize.width) : prefWidth;
-        size.pref.height = prefHeight == null ? (widgetPrefSize == null ? 0 : widgetPrefSize.height) : prefHeight;
-
         Dimension widgetMaxSize = null;
         if (widget != null && (maxWidth == null || maxHeight == null)) {
             widgetMaxSize = widget.getMaximumSize();
         }
+        return getSize(size, widgetMinSize, widgetPrefSize, widgetMaxSize);
+    }
+
+    /**
+     * Combines constraints of cell with given sizes of widget (null means no widget), it doesn't touch widget.
+     * Given sizes can be the instances of result.
+     */
+    Size getSize(Size size, Dimension widgetMinSize, Dimension widgetPrefSize, Dimension widgetMaxSize) {
+        size.min.width = minWidth == null ? (widgetMinSize == null ? 0 : widgetMinSize.width) : minWidth;
+        size.min.height = minHeight == null ? (widgetMinSize == null ? 0 : widgetMinSize.height) : minHeight;
+
+        size.pref.width = prefWidth == null ? (widgetPrefSize == null ? 0 : widgetPrefSize.width) : prefWidth;
+        size.pref.height = prefHeight == null ? (widgetPrefSize == null ? 0 : widgetPrefSize.height) : prefHeight;
+
         size.max.width = maxWidth == null ? (widgetMaxSize == null ? 0 : widgetMaxSize.width) : maxWidth;
         size.max.height = maxHeight == null ? (widgetMaxSize == null ? 0 : widgetMaxSize.height) : maxHeight;
 
@@ -404,11 +539,21 @@ public class Cell<T extends Component> {
     }
 
     public Insets getSpace() {
-        return new Insets(spaceTop, spaceLeft, spaceBottom, spaceRight);
+        return getSpace(new Insets(0, 0, 0, 0));
+    }
+
+    public Insets getSpace(Insets space) {
+        space.set(spaceTop, spaceLeft, spaceBottom, spaceRight);
+        return space;
     }
 
     public Insets getPad() {
-        return new Insets(padTop, padLeft, padBottom, padRight);
+        return getPad(new Insets(0, 0, 0, 0));
+    }
+
+    public Insets getPad(Insets pad) {
+        pad.set(padTop, padLeft, padBottom, padRight);
+        return pad;
     }
 
     public boolean isFillX() {
@@ -435,6 +580,10 @@ public class Cell<T extends Component> {
         return colspan;
     }
 
+    public int getRowspan() {
+        return rowspan;
+    }
+
     public boolean isUniformX() {
         return uniformX;
     }
@@ -443,23 +592,60 @@ public class Cell<T extends Component> {
         return uniformY;
     }
 
+    public SizeProvider getSizeProvider() {
+        return sizeProvider;
+    }
+
+    public Color getBackground() {
+        return background;
+    }
+
+    public Border getBorder() {
+        return border;
+    }
+
+    /**
+     * Provider of cell, or provider of composite. Null if cell has no widget or no provider is registered.
+     */
+    SizeProvider getEffectiveSizeProvider() {
+        if (widget == null) return null;
+        if (sizeProvider != null) return sizeProvider;
+        return layout != null ? layout.getSizeProvider() : null;
+    }
+
     public boolean isRowEnd() {
         return rowEnd;
     }
 
     public Rectangle getWidgetRect() {
-        return new Rectangle(widgetX, widgetY, widgetWidth, widgetHeight);
+        return getWidgetRect(new Rectangle());
+    }
+
+    public Rectangle getWidgetRect(Rectangle rect) {
+        if (layout == null) {
+            rect.setBounds(0, 0, 0, 0);
+            return rect;
+        }
+        return layout.getWidgetRect(index, rect);
     }
 
     public Insets getComputedPad() {
-        return new Insets(computedPadTop, computedPadLeft, computedPadBottom, computedPadRight);
+        return getComputedPad(new Insets(0, 0, 0, 0));
+    }
+
+    public Insets getComputedPad(Insets pad) {
+        if (layout == null) {
+            pad.set(0, 0, 0, 0);
+            return pad;
+        }
+        return layout.getComputedPad(index, pad);
     }
 
     public int getColumn() {
-        return column;
+        return layout != null ? layout.getColumn(index) : 0;
     }
 
     public int getRow() {
-        return row;
+        return layout != null ? layout.getRow(index) : 0;
     }
 }
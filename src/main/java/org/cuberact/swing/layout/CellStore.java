@@ -0,0 +1,231 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import java.awt.Component;
+import java.awt.Insets;
+import java.util.Arrays;
+
+/**
+ * CellStore
+ * <p>
+ * Columnar (struct of arrays) copy of cells used by {@link LayoutSolver} hot loops.
+ * Index in all arrays is index of cell in composite. Constraints are loaded from {@link Cell} before size computation
+ * (only cells with changed constraints, see loadValid),
+ * topology is filled by updateTopology and computed geometry is written by solveSize/solveLayout.
+ * Measured sizes and loaded constraints are long-lived data, they are kept across passes while measureValid / loadValid flag of cell is set.
+ * </p>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+final class CellStore {
+
+    static final int FILL_X = 1;
+    static final int FILL_Y = 1 << 1;
+    static final int EXPAND_X = 1 << 2;
+    static final int EXPAND_Y = 1 << 3;
+    static final int UNIFORM_X = 1 << 4;
+    static final int UNIFORM_Y = 1 << 5;
+    static final int ROW_END = 1 << 6;
+
+    int size;
+    int capacity;
+    // changed when loaded constraints, measured sizes or topology of cells change (validity of LayoutMemo)
+    int version;
+    // constraints
+    boolean[] loadValid;
+    byte[] flags;
+    int[] colspan, rowspan, align;
+    int[] padTop, padLeft, padBottom, padRight;
+    int[] spaceTop, spaceLeft, spaceBottom, spaceRight;
+    // measured sizes
+    int[] minWidth, minHeight, prefWidth, prefHeight, maxWidth, maxHeight;
+    boolean[] measureValid;
+    // topology
+    int[] column, row, above;
+    // computed geometry
+    int[] computedPadTop, computedPadLeft, computedPadBottom, computedPadRight;
+    int[] widgetX, widgetY, widgetWidth, widgetHeight;
+    boolean overlapping; // some widget exceeds its cell (widgets can overlap)
+
+    CellStore() {
+        allocate(16);
+    }
+
+    void ensureCapacity(int required) {
+        if (required > capacity) {
+            allocate(Math.max(required, capacity + (capacity >> 1)));
+        }
+    }
+
+    void add() {
+        ensureCapacity(size + 1);
+        measureValid[size] = false;
+        loadValid[size] = false;
+        size++;
+    }
+
+    /**
+     * Inserts cells without measurement, long-lived (measurement) data of following cells is shifted.
+     */
+    void insert(int index, int count) {
+        ensureCapacity(size + count);
+        int moved = size - index;
+        if (moved > 0) {
+            System.arraycopy(minWidth, index, minWidth, index + count, moved);
+            System.arraycopy(minHeight, index, minHeight, index + count, moved);
+            System.arraycopy(prefWidth, index, prefWidth, index + count, moved);
+            System.arraycopy(prefHeight, index, prefHeight, index + count, moved);
+            System.arraycopy(maxWidth, index, maxWidth, index + count, moved);
+            System.arraycopy(maxHeight, index, maxHeight, index + count, moved);
+            System.arraycopy(measureValid, index, measureValid, index + count, moved);
+        }
+        Arrays.fill(measureValid, index, index + count, false);
+        Arrays.fill(loadValid, index, size + count, false); // shifted cells are loaded again
+        size += count;
+    }
+
+    /**
+     * Moves long-lived (measurement) data of cell to lower index (compaction after removal of cells).
+     */
+    void move(int from, int to) {
+        minWidth[to] = minWidth[from];
+        minHeight[to] = minHeight[from];
+        prefWidth[to] = prefWidth[from];
+        prefHeight[to] = prefHeight[from];
+        maxWidth[to] = maxWidth[from];
+        maxHeight[to] = maxHeight[from];
+        measureValid[to] = measureValid[from];
+        loadValid[to] = false; // constraints are loaded again
+    }
+
+    void invalidateLoads() {
+        Arrays.fill(loadValid, 0, size, false);
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @param owner component for insets of cell border (composite, it paints the border), null in headless layout,
+     *              border is not painted there and its insets are not added (TitledBorder and LAF borders need the component)
+     */
+    void load(int i, Cell cell, Component owner) {
+        int f = 0;
+        if (cell.fillX) f |= FILL_X;
+        if (cell.fillY) f |= FILL_Y;
+        if (cell.expandX) f |= EXPAND_X;
+        if (cell.expandY) f |= EXPAND_Y;
+        if (cell.uniformX) f |= UNIFORM_X;
+        if (cell.uniformY) f |= UNIFORM_Y;
+        if (cell.isRowEnd()) f |= ROW_END;
+        flags[i] = (byte) f;
+        loadValid[i] = true;
+        version++;
+        colspan[i] = cell.colspan;
+        rowspan[i] = Math.max(1, cell.rowspan);
+        align[i] = cell.align;
+        padTop[i] = cell.padTop;
+        padLeft[i] = cell.padLeft;
+        padBottom[i] = cell.padBottom;
+        padRight[i] = cell.padRight;
+        if (cell.border != null && owner != null) { // content is inside of border
+            Insets insets = cell.border.getBorderInsets(owner);
+            padTop[i] += insets.top;
+            padLeft[i] += insets.left;
+            padBottom[i] += insets.bottom;
+            padRight[i] += insets.right;
+        }
+        spaceTop[i] = cell.spaceTop;
+        spaceLeft[i] = cell.spaceLeft;
+        spaceBottom[i] = cell.spaceBottom;
+        spaceRight[i] = cell.spaceRight;
+    }
+
+    void measured(int i, Cell.Size size) {
+        if (minWidth[i] != size.min.width || minHeight[i] != size.min.height || prefWidth[i] != size.pref.width
+                || prefHeight[i] != size.pref.height || maxWidth[i] != size.max.width || maxHeight[i] != size.max.height) {
+            version++;
+        }
+        minWidth[i] = size.min.width;
+        minHeight[i] = size.min.height;
+        prefWidth[i] = size.pref.width;
+        prefHeight[i] = size.pref.height;
+        maxWidth[i] = size.max.width;
+        maxHeight[i] = size.max.height;
+        measureValid[i] = true;
+    }
+
+    private void allocate(int newCapacity) {
+        flags = copyOf(flags, newCapacity);
+        colspan = copyOf(colspan, newCapacity);
+        align = copyOf(align, newCapacity);
+        padTop = copyOf(padTop, newCapacity);
+        padLeft = copyOf(padLeft, newCapacity);
+        padBottom = copyOf(padBottom, newCapacity);
+        padRight = copyOf(padRight, newCapacity);
+        spaceTop = copyOf(spaceTop, newCapacity);
+        spaceLeft = copyOf(spaceLeft, newCapacity);
+        spaceBottom = copyOf(spaceBottom, newCapacity);
+        spaceRight = copyOf(spaceRight, newCapacity);
+        minWidth = copyOf(minWidth, newCapacity);
+        minHeight = copyOf(minHeight, newCapacity);
+        prefWidth = copyOf(prefWidth, newCapacity);
+        prefHeight = copyOf(prefHeight, newCapacity);
+        maxWidth = copyOf(maxWidth, newCapacity);
+        maxHeight = copyOf(maxHeight, newCapacity);
+        measureValid = copyOf(measureValid, newCapacity);
+        loadValid = copyOf(loadValid, newCapacity);
+        column = copyOf(column, newCapacity);
+        row = copyOf(row, newCapacity);
+        rowspan = copyOf(rowspan, newCapacity);
+        above = copyOf(above, newCapacity);
+        computedPadTop = copyOf(computedPadTop, newCapacity);
+        computedPadLeft = copyOf(computedPadLeft, newCapacity);
+        computedPadBottom = copyOf(computedPadBottom, newCapacity);
+        computedPadRight = copyOf(computedPadRight, newCapacity);
+        widgetX = copyOf(widgetX, newCapacity);
+        widgetY = copyOf(widgetY, newCapacity);
+        widgetWidth = copyOf(widgetWidth, newCapacity);
+        widgetHeight = copyOf(widgetHeight, newCapacity);
+        capacity = newCapacity;
+    }
+
+    private static int[] copyOf(int[] array, int newCapacity) {
+        return array == null ? new int[newCapacity] : Arrays.copyOf(array, newCapacity);
+    }
+
+    private static boolean[] copyOf(boolean[] array, int newCapacity) {
+        return array == null ? new boolean[newCapacity] : Arrays.copyOf(array, newCapacity);
+    }
+
+    private static byte[] copyOf(byte[] array, int newCapacity) {
+        return array == null ? new byte[newCapacity] : Arrays.copyOf(array, newCapacity);
+    }
+}
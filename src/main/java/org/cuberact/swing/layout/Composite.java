@@ -30,6 +30,7 @@ package org.cuberact.swing.layout;
 import javax.swing.ImageIcon;
 import javax.swing.JComponent;
 import javax.swing.JLabel;
+import javax.swing.SwingUtilities;
 import javax.swing.border.Border;
 import java.awt.Color;
 import java.awt.Component;
@@ -38,9 +39,14 @@ import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Insets;
 import java.awt.LayoutManager;
+import java.awt.Rectangle;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 import static org.cuberact.swing.layout.Cell.CENTER;
 
@@ -57,7 +63,18 @@ import static org.cuberact.swing.layout.Cell.CENTER;
 @SuppressWarnings({"unused", "UnusedReturnValue"})
 public class Composite extends JComponent implements Iterable<Cell<? extends Component>> {
 
+    private static final int MAX_BACKGROUND_SPLIT = 32; // more opaque children in clip, whole clip is filled
+
     private CompositeLayout layout;
+    private boolean resizing;
+    private int batchDepth;
+    private boolean batchInvalidated;
+    private boolean validateRoot;
+    private Dimension fixedMinSize, fixedPrefSize, fixedMaxSize;
+    private LayoutScheduler layoutScheduler;
+    private boolean placementLayout;
+    private final Rectangle paintClip = new Rectangle();
+    private Component[] opaqueChildren = new Component[16];
 
     public Composite() {
         //empty constructor
@@ -93,12 +110,123 @@ public class Composite extends JComponent implements Iterable<Cell<? extends Com
         return layout.add(widget);
     }
 
-    public Cell<Stack> addStack(Component... widgets) {
-        Stack stack = new Stack();
-        for (final Component component : widgets) {
-            stack.add(component);
+    /**
+     * Adds cells in one batch. Added cells have defaults of current row (see {@link #row()}), as cells added by addCell.
+     */
+    public <T extends Component> List<Cell<T>> addCells(Collection<? extends T> widgets) {
+        initLayoutIfNull();
+        return insertCells(layout.getCells().size(), widgets);
+    }
+
+    /**
+     * Inserts cells before cell at given index in one batch (cell indexes and components are shifted once).
+     * Inserted cells belong to the row of cell at given index and they have composite defaults ({@link #defaults()}).
+     * Index equal to count of cells appends cells to current row, they have defaults of current row then (see {@link #addCells(Collection)}).
+     */
+    public <T extends Component> List<Cell<T>> insertCells(int at, Collection<? extends T> widgets) {
+        initLayoutIfNull();
+        beginBatch();
+        try {
+            return layout.insert(at, widgets);
+        } finally {
+            commitBatch();
         }
-        return addCell(stack);
+    }
+
+    /**
+     * Removes cells with index from (inclusive) to (exclusive) in one batch.
+     */
+    public int removeCells(int from, int to) {
+        return removeCells(from, to, null);
+    }
+
+    /**
+     * Removes cells accepted by filter in one batch.
+     *
+     * @return count of removed cells
+     */
+    public int removeCells(Predicate<? super Cell<? extends Component>> filter) {
+        return removeCells(0, Integer.MAX_VALUE, filter);
+    }
+
+    private int removeCells(int from, int to, Predicate<? super Cell<? extends Component>> filter) {
+        if (layout == null) return 0;
+        List<Cell<? extends Component>> cells = layout.getCells();
+        int removed = 0;
+        beginBatch();
+        try {
+            int componentIndex = layout.componentIndexOf(Math.min(to, cells.size()));
+            for (int i = Math.min(to, cells.size()) - 1; i >= Math.max(0, from); i--) { // from end, component indexes of previous cells stay valid
+                Cell<? extends Component> cell = cells.get(i);
+                if (cell.widget != null) componentIndex--;
+                if (filter != null && !filter.test(cell)) continue;
+                layout.removeCell(cell);
+                if (cell.widget != null) super.remove(componentIndex);
+                removed++;
+            }
+        } finally {
+            commitBatch();
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces widget of cell, new cell keeps all constraints of given cell.
+     *
+     * @return new cell with given widget, null if cell doesn't belong to this composite
+     */
+    public <T extends Component> Cell<T> replaceWidget(Cell<?> cell, T widget) {
+        if (layout == null || cell.layout != layout) return null;
+        beginBatch();
+        try {
+            int componentIndex = layout.componentIndexOf(cell);
+            if (cell.widget != null) super.remove(componentIndex);
+            Cell<T> replacement = layout.replace(cell, widget);
+            if (widget != null) addImpl(widget, null, componentIndex);
+            return replacement;
+        } finally {
+            commitBatch();
+        }
+    }
+
+    /**
+     * Runs mutation in batch, see {@link #beginBatch()}.
+     */
+    public void batch(Runnable mutation) {
+        beginBatch();
+        try {
+            mutation.run();
+        } finally {
+            commitBatch();
+        }
+    }
+
+    /**
+     * Starts batch of mutations (batches can be nested). Invalidation of composite is suppressed until {@link #commitBatch()},
+     * topology and sizes are computed once in next layout pass after commit.
+     */
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Ends batch, the outermost commit revalidates composite if it was invalidated in batch.
+     */
+    public void commitBatch() {
+        if (batchDepth == 0) return;
+        if (--batchDepth == 0 && batchInvalidated) {
+            batchInvalidated = false;
+            revalidate();
+            repaint();
+        }
+    }
+
+    public boolean isInBatch() {
+        return batchDepth > 0;
+    }
+
+    public Cell<Stack> addStack(Component... widgets) {
+        return addCell(new Stack(widgets));
     }
 
     public Cell<?> row() {
@@ -169,12 +297,168 @@ public class Composite extends JComponent implements Iterable<Cell<? extends Com
         return this;
     }
 
+    /**
+     * Solves this composite together with all nested composites on given pool. Constraints and widget sizes are taken on EDT,
+     * independent nested composites are solved in parallel and bounds are applied back on EDT in one pass.
+     * It pays off for large trees of nested composites, small trees are solved in one task. Null switches back to sequential layout.
+     */
+    public Composite parallelLayout(ForkJoinPool pool) {
+        initLayoutIfNull();
+        layout.parallelLayout(pool);
+        return this;
+    }
+
+    public Composite parallelLayout() {
+        return parallelLayout(ForkJoinPool.commonPool());
+    }
+
+    public ForkJoinPool getParallelLayout() {
+        return layout != null ? layout.getParallelPool() : null;
+    }
+
+    /**
+     * Sizes of widgets are taken from given provider instead of widgets (cell can have own provider). Null removes it.
+     */
+    public Composite sizeProvider(SizeProvider sizeProvider) {
+        initLayoutIfNull();
+        layout.sizeProvider(sizeProvider);
+        return this;
+    }
+
+    public SizeProvider getSizeProvider() {
+        return layout != null ? layout.getSizeProvider() : null;
+    }
+
+    /**
+     * Remembers computed bounds of widgets for given count of last composite sizes (LRU). Layout to previously seen size
+     * (maximize/restore, collapsed side panel) only applies remembered bounds, while no widget size or cell constraint changed.
+     * Zero turns it off (default). Parallel layout doesn't use it.
+     */
+    public Composite layoutMemo(int capacity) {
+        initLayoutIfNull();
+        layout.layoutMemo(capacity);
+        return this;
+    }
+
+    public int getLayoutMemo() {
+        return layout != null ? layout.getLayoutMemo() : 0;
+    }
+
+    /**
+     * Background of odd rows (zebra striping) painted by composite across table width. Null removes it.
+     */
+    public Composite rowStripes(Color color) {
+        initLayoutIfNull();
+        layout.rowStripes(color);
+        return this;
+    }
+
+    public Color getRowStripes() {
+        return layout != null ? layout.getRowStripes() : null;
+    }
+
+    /**
+     * One pixel line painted by composite at bottom of each row except the last (use space or pad to make room for it). Null removes it.
+     */
+    public Composite rowSeparator(Color color) {
+        initLayoutIfNull();
+        layout.rowSeparator(color);
+        return this;
+    }
+
+    public Color getRowSeparator() {
+        return layout != null ? layout.getRowSeparator() : null;
+    }
+
+    /**
+     * Composite in fixed-size slot (tile, card in grid, dialog with fixed bounds). It is validate root and its min, pref
+     * and max size are taken once (first query after this call), changes inside never change them,
+     * so revalidate inside of it lays out only this composite. Call it again to take new sizes.
+     */
+    public Composite validateRoot(boolean validateRoot) {
+        this.validateRoot = validateRoot;
+        fixedMinSize = null;
+        fixedPrefSize = null;
+        fixedMaxSize = null;
+        return this;
+    }
+
+    boolean isValidateRootMode() {
+        return validateRoot;
+    }
+
+    /**
+     * Revalidation of this composite and of nested composites is coalesced to frame ticks of given scheduler. Null removes it.
+     */
+    public Composite layoutScheduler(LayoutScheduler layoutScheduler) {
+        this.layoutScheduler = layoutScheduler;
+        return this;
+    }
+
+    public LayoutScheduler getLayoutScheduler() {
+        return layoutScheduler;
+    }
+
+    /**
+     * Scheduler of this composite or of nearest parent composite, null if there is none.
+     */
+    LayoutScheduler getEffectiveLayoutScheduler() {
+        for (Component component = this; component instanceof Composite; component = component.getParent()) {
+            LayoutScheduler scheduler = ((Composite) component).layoutScheduler;
+            if (scheduler != null) return scheduler;
+        }
+        return null;
+    }
+
+    /**
+     * With scheduler, composite is only invalidated and validated in next frame tick.
+     */
+    @Override
+    public void revalidate() {
+        LayoutScheduler scheduler = getEffectiveLayoutScheduler();
+        if (scheduler == null) {
+            super.revalidate();
+            return;
+        }
+        invalidate();
+        if (!scheduler.schedule(this)) validate();
+    }
+
+    @Override
+    public Dimension getMinimumSize() {
+        if (!validateRoot || isMinimumSizeSet()) return super.getMinimumSize();
+        if (fixedMinSize == null) fixedMinSize = super.getMinimumSize();
+        return new Dimension(fixedMinSize);
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (!validateRoot || isPreferredSizeSet()) return super.getPreferredSize();
+        if (fixedPrefSize == null) fixedPrefSize = super.getPreferredSize();
+        return new Dimension(fixedPrefSize);
+    }
+
+    @Override
+    public Dimension getMaximumSize() {
+        if (!validateRoot || isMaximumSizeSet()) return super.getMaximumSize();
+        if (fixedMaxSize == null) fixedMaxSize = super.getMaximumSize();
+        return new Dimension(fixedMaxSize);
+    }
+
     public int getAlign() {
         return layout != null ? layout.getAlign() : CENTER;
     }
 
     public Insets getPad() {
-        return layout != null ? layout.getPad() : new Insets(0, 0, 0, 0);
+        return getPad(new Insets(0, 0, 0, 0));
+    }
+
+    public Insets getPad(Insets pad) {
+        if (layout == null) {
+            pad.set(0, 0, 0, 0);
+            return pad;
+        }
+        return layout.getPad(pad);
     }
 
     public int getColumns() {
@@ -185,15 +469,73 @@ public class Composite extends JComponent implements Iterable<Cell<? extends Com
         return layout != null ? layout.getRows() : 0;
     }
 
+    /**
+     * Background is filled only in clip bounds and not under opaque children.
+     */
     @Override
     protected void paintComponent(Graphics g) {
+        Rectangle clip = paintClip;
+        clip.setBounds(0, 0, getWidth(), getHeight());
+        g.getClipBounds(clip); // unchanged without clip
+        SwingUtilities.computeIntersection(0, 0, getWidth(), getHeight(), clip);
+        int x1 = clip.x, y1 = clip.y, x2 = clip.x + clip.width, y2 = clip.y + clip.height;
         if (isBackgroundSet()) {
             g.setColor(getBackground());
-            g.fillRect(0, 0, getWidth(), getHeight());
+            int count = 0;
+            int found = layout != null ? layout.findCells(x1, y1, x2, y2) : -1; // only widgets of cells in clip are tested
+            for (int k = 0, n = found >= 0 ? found : getComponentCount(); k < n; k++) {
+                Component child = found >= 0 ? layout.getWidget(layout.getFoundCell(k)) : getComponent(k);
+                if (child == null || !child.isVisible() || !child.isOpaque() || !(child instanceof JComponent)) continue;
+                int childX = child.getX(), childY = child.getY();
+                if (childX >= x2 || childY >= y2 || childX + child.getWidth() <= x1 || childY + child.getHeight() <= y1) continue;
+                if (childX <= x1 && childY <= y1 && childX + child.getWidth() >= x2 && childY + child.getHeight() >= y2) {
+                    Arrays.fill(opaqueChildren, 0, count, null);
+                    count = -1; // child covers whole clip
+                    break;
+                }
+                if (count == opaqueChildren.length) opaqueChildren = Arrays.copyOf(opaqueChildren, count * 2);
+                opaqueChildren[count++] = child;
+            }
+            if (count > MAX_BACKGROUND_SPLIT) {
+                g.fillRect(x1, y1, x2 - x1, y2 - y1);
+            } else if (count >= 0) {
+                fillBackground(g, x1, y1, x2, y2, 0, count);
+            }
+            if (count > 0) Arrays.fill(opaqueChildren, 0, count, null); // no references to children kept
+        }
+        if (layout != null && x1 < x2 && y1 < y2) {
+            layout.paintDecorations(g, x1, y1, x2, y2); // cell backgrounds and borders instead of wrapper components
         }
         super.paintComponent(g);
     }
 
+    /**
+     * Fills given area except bounds of opaque children, area around first intersecting child is split to four parts.
+     */
+    private void fillBackground(Graphics g, int x1, int y1, int x2, int y2, int from, int count) {
+        if (x1 >= x2 || y1 >= y2) return;
+        for (int k = from; k < count; k++) {
+            Component child = opaqueChildren[k];
+            int childX1 = Math.max(x1, child.getX()), childY1 = Math.max(y1, child.getY());
+            int childX2 = Math.min(x2, child.getX() + child.getWidth()), childY2 = Math.min(y2, child.getY() + child.getHeight());
+            if (childX1 >= childX2 || childY1 >= childY2) continue;
+            fillBackground(g, x1, y1, x2, childY1, k + 1, count);
+            fillBackground(g, x1, childY2, x2, y2, k + 1, count);
+            fillBackground(g, x1, childY1, childX1, childY2, k + 1, count);
+            fillBackground(g, childX2, childY1, x2, childY2, k + 1, count);
+            return;
+        }
+        g.fillRect(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * Children don't overlap while each widget is within its cell, Swing then doesn't check siblings when painting child.
+     */
+    @Override
+    public boolean isOptimizedDrawingEnabled() {
+        return layout == null || !layout.isOverlapping();
+    }
+
     @Override
     public void setBackground(final Color bg) {
         setOpaque(bg != null && bg.getAlpha() == 255);
@@ -279,14 +621,103 @@ public class Composite extends JComponent implements Iterable<Cell<? extends Com
         super.addImpl(comp, constraints, index);
     }
 
+    /**
+     * Pure resize keeps computed sizes of composite (min/pref sizes of table don't depend on own bounds),
+     * so next layout pass only redistributes space and positions cells without querying widgets.
+     * Cells whose size can depend on width (wrapped text, HTML, size provider) are measured again when width changes.
+     */
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        if (layout != null && width != getWidth()) layout.invalidateWidthDependentMeasures();
+        resizing = true;
+        try {
+            super.setBounds(x, y, width, height);
+        } finally {
+            resizing = false;
+        }
+    }
+
+    /**
+     * Invalidation climbs to parents as usual. Parent composite measures this composite again in validation
+     * and solves its own layout only when min, pref or max size of this composite changed.
+     */
     @Override
     public void invalidate() {
+        if (placementLayout) return; // widgets moved by placement layout, they are validated by it
+        if (batchDepth > 0) {
+            batchInvalidated = true;
+            return;
+        }
         super.invalidate();
-        if (layout != null) {
+        if (layout != null && !resizing) {
             layout.invalidateSize();
         }
     }
 
+    /**
+     * With {@link LayoutScheduler}, validation outside of frame tick is postponed to the tick.
+     */
+    @Override
+    public void validate() {
+        if (!isValid()) {
+            LayoutScheduler scheduler = getEffectiveLayoutScheduler();
+            if (scheduler != null && scheduler.schedule(this)) return; // validated in next frame tick
+        }
+        super.validate();
+    }
+
+    /**
+     * With {@link LayoutScheduler}, layout of composite validated by its Swing ancestor (validate root which is not composite,
+     * e.g. JRootPane) is postponed to the next frame tick too. Ancestors are laid out now (size of composite is computed),
+     * this composite stays invalid until the tick.
+     */
+    @Override
+    protected void validateTree() {
+        if (!isValid()) {
+            LayoutScheduler scheduler = getEffectiveLayoutScheduler();
+            if (scheduler != null && scheduler.schedule(this)) return; // laid out in next frame tick
+        }
+        super.validateTree();
+    }
+
+    /**
+     * Lays out valid composite after placement (fill, align) of some cells changed. Composite stays valid
+     * (parents are not invalidated), widgets invalidated by new bounds are validated here.
+     */
+    void layoutPlacement() {
+        placementLayout = true;
+        try {
+            doLayout();
+        } finally {
+            placementLayout = false;
+        }
+        for (int i = 0, n = getComponentCount(); i < n; i++) {
+            Component child = getComponent(i);
+            if (!child.isValid()) child.validate();
+        }
+        repaint();
+    }
+
+    /**
+     * Only composite in {@link #validateRoot(boolean)} mode is validate root (opt-in, its size doesn't change).
+     */
+    @Override
+    public boolean isValidateRoot() {
+        return validateRoot;
+    }
+
+    CompositeLayout getCompositeLayout() {
+        initLayoutIfNull();
+        return layout;
+    }
+
+    /**
+     * Layout of this composite, null if cells were never added or layout manager was replaced.
+     */
+    CompositeLayout getInstalledLayout() {
+        return layout != null && getLayout() instanceof CompositeLayoutManager ? layout : null;
+    }
+
     private void initLayoutIfNull() {
         if (layout == null) {
             layout = new CompositeLayout(this);
@@ -302,23 +733,22 @@ public class Composite extends JComponent implements Iterable<Cell<? extends Com
 
     private static class CompositeLayoutManager implements LayoutManager {
         private final CompositeLayout layout;
-        private Dimension minSize = new Dimension();
-        private Dimension prefSize = new Dimension();
 
         private CompositeLayoutManager(CompositeLayout layout) {
             this.layout = layout;
         }
 
+        /**
+         * Copy, cached size of layout is kept for internal use only (caller can modify result).
+         */
         @Override
         public Dimension preferredLayoutSize(Container parent) {
-            layout.layout();
-            return layout.getPrefSize();
+            return new Dimension(layout.getPrefSize());
         }
 
         @Override
         public Dimension minimumLayoutSize(Container parent) {
-            layout.layout();
-            return layout.getMinSize();
+            return new Dimension(layout.getMinSize());
         }
 
         @Override
@@ -27,20 +27,31 @@
 
 package org.cuberact.swing.layout;
 
-import static org.cuberact.swing.layout.Cell.BOTTOM;
 import static org.cuberact.swing.layout.Cell.CENTER;
-import static org.cuberact.swing.layout.Cell.LEFT;
-import static org.cuberact.swing.layout.Cell.RIGHT;
 import org.cuberact.swing.layout.Cell.Size;
-import static org.cuberact.swing.layout.Cell.TOP;
 
+import javax.swing.JComponent;
+import javax.swing.JEditorPane;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.plaf.basic.BasicHTML;
+import java.awt.AWTEvent;
+import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.awt.Graphics;
 import java.awt.Insets;
+import java.awt.Rectangle;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * CompositeLayout
@@ -57,19 +68,38 @@ class CompositeLayout {
     private final Composite composite;
     private final Cell compositeDefaults = new Cell();
     private final List<Cell<? extends Component>> cells = new ArrayList<>();
+    private final Map<Component, Cell<? extends Component>> widgetCells = new IdentityHashMap<>();
+    private int removedCells;
     private Cell rowDefaults;
-    private Map<Cell, Size> cellSizesShortTimeCache = new HashMap<>();
-    private int columns, rows;
     private boolean sizeInvalid = true;
-    private int[] columnMinWidth, rowMinHeight;
-    private int[] columnPrefWidth, rowPrefHeight;
-    private int tableMinWidth, tableMinHeight;
-    private int tablePrefWidth, tablePrefHeight;
-    private int[] columnWidth, rowHeight;
-    private boolean[] expandWidth, expandHeight;
-    private int[] columnWeightedWidth, rowWeightedHeight;
+    private boolean structureInvalid = true;
+    private boolean loadInvalid = true;
+    private AWTEvent revalidateEvent; // EDT event in which revalidation was requested
+    private boolean placementRequested;
+    private final LayoutSolver solver = new LayoutSolver();
+    private final CellStore store = solver.store;
+    private final Dimension minSize = new Dimension();
+    private final Dimension prefSize = new Dimension();
+    private final Insets borderInsets = new Insets(0, 0, 0, 0);
+    private final Insets padInsets = new Insets(0, 0, 0, 0);
+    private final Rectangle paintBounds = new Rectangle();
+    private final Size measured = new Size();
+    private final Dimension maxSize = new Dimension();
+    private final PropertyChangeListener widgetListener = this::widgetPropertyChanged;
     private int padTop, padLeft, padBottom, padRight;
     private int align = CENTER;
+    private ForkJoinPool parallelPool;
+    private SizeProvider sizeProvider;
+    private LayoutMemo memo;
+    private Color rowStripes, rowSeparator;
+    private CompositeLayout[] nested = new CompositeLayout[0];
+    private int[] nestedCell = new int[0];
+    private int nestedCount, treeCells;
+    private int solvedWidth = -1, solvedHeight = -1;
+    // store version, size, insets and align of last layout, layout is not solved again while they are the same
+    private int laidOutVersion, laidOutWidth = -1, laidOutHeight, laidOutAlign;
+    private final Insets laidOutInsets = new Insets(0, 0, 0, 0);
+    private int widgetQueries;
 
     CompositeLayout(Composite composite) {
         this.composite = composite;
@@ -81,61 +111,196 @@ class CompositeLayout {
 
     <T extends Component> Cell<T> add(T widget) {
         Cell<T> cell = new Cell<>(widget, rowDefaults != null ? rowDefaults : compositeDefaults);
-        if (widget != null) composite.addImpl(widget, null, -1);
+        if (widget != null) {
+            composite.addImpl(widget, null, -1);
+            widget.addPropertyChangeListener(widgetListener);
+            widgetCells.put(widget, cell);
+        }
+        cell.layout = this;
+        cell.index = cells.size();
         cells.add(cell);
+        store.add();
+        loadInvalid = true;
+        structureInvalid = true;
+        sizeInvalid = true;
         return cell;
     }
 
+    /**
+     * Inserts cells before cell at given index, index equal to count of cells appends. Inserted cells belong to the row
+     * of cell at given index. Cell indexes are shifted once for whole collection.
+     */
+    <T extends Component> List<Cell<T>> insert(int at, Collection<? extends T> widgets) {
+        compactCells();
+        Cell defaults = at == cells.size() && rowDefaults != null ? rowDefaults : compositeDefaults;
+        int componentIndex = componentIndexOf(at);
+        List<Cell<T>> inserted = new ArrayList<>(widgets.size());
+        for (T widget : widgets) {
+            Cell<T> cell = new Cell<>(widget, defaults);
+            if (widget != null) {
+                composite.addImpl(widget, null, componentIndex++);
+                widget.addPropertyChangeListener(widgetListener);
+                widgetCells.put(widget, cell);
+            }
+            cell.layout = this;
+            inserted.add(cell);
+        }
+        cells.addAll(at, inserted);
+        store.insert(at, inserted.size());
+        for (int i = at, n = cells.size(); i < n; i++) {
+            cells.get(i).index = i;
+        }
+        loadInvalid = true;
+        structureInvalid = true;
+        sizeInvalid = true;
+        return inserted;
+    }
+
+    /**
+     * Replaces cell by new cell with given widget and same constraints. Composite swaps components.
+     */
+    <T extends Component> Cell<T> replace(Cell<?> cell, T widget) {
+        Cell<T> replacement = new Cell<>(widget, cell);
+        replacement.rowEnd(cell.isRowEnd());
+        if (cell.widget != null) widgetCells.remove(cell.widget);
+        release(cell);
+        if (widget != null) {
+            widget.addPropertyChangeListener(widgetListener);
+            widgetCells.put(widget, replacement);
+        }
+        replacement.layout = this;
+        replacement.index = cell.index;
+        cells.set(cell.index, replacement);
+        store.loadValid[cell.index] = false;
+        loadInvalid = true;
+        invalidateMeasure(cell.index);
+        return replacement;
+    }
+
+    /**
+     * Component index of widget of cell at given index (or of next widget if cell has no widget).
+     */
+    int componentIndexOf(int cellIndex) {
+        compactCells();
+        int componentIndex = 0;
+        for (int i = 0; i < cellIndex; i++) {
+            if (cells.get(i).widget != null) componentIndex++;
+        }
+        return componentIndex;
+    }
+
+    /**
+     * Component index of widget of given cell, cells marked as removed are dropped first (index of cell is valid then).
+     */
+    int componentIndexOf(Cell<?> cell) {
+        compactCells();
+        return componentIndexOf(cell.index);
+    }
+
     Cell<?> row() {
+        compactCells();
         if (!cells.isEmpty()) cells.get(cells.size() - 1).rowEnd(true);
         rowDefaults = new Cell(compositeDefaults);
         return rowDefaults;
     }
 
+    /**
+     * Constant time, cell is only marked as removed (widget is found by its component index, cell by identity map).
+     * Removed cells are dropped from cells and store in one pass before next use of cell indexes.
+     */
     void removeCell(int componentIndex) {
-        int cellIndex = -1;
-        int widgetIndex = -1;
-        for (Cell cell : cells) {
-            cellIndex++;
-            if (cell.widget != null) {
-                widgetIndex++;
-                if (widgetIndex == componentIndex) break;
+        Cell<?> cell = widgetCells.get(composite.getComponent(componentIndex));
+        if (cell != null) removeCell(cell);
+    }
+
+    /**
+     * Marks cell as removed, composite removes widget of cell.
+     */
+    void removeCell(Cell<?> cell) {
+        if (cell.layout != this) return;
+        if (cell.widget != null) widgetCells.remove(cell.widget);
+        release(cell);
+        removedCells++;
+        structureInvalid = true;
+        sizeInvalid = true;
+    }
+
+    /**
+     * Drops cells marked as removed, rowEnd of removed cell is moved to previous cell. Measurements of kept cells are kept.
+     */
+    private void compactCells() {
+        if (removedCells == 0) return;
+        removedCells = 0;
+        int kept = 0;
+        Cell<?> previous = null;
+        for (int i = 0, n = cells.size(); i < n; i++) {
+            Cell<? extends Component> cell = cells.get(i);
+            if (cell.layout != this) {
+                if (previous != null && cell.rowEnd && !previous.rowEnd) { // field, not setter, compaction runs in layout too
+                    previous.rowEnd = true;
+                    store.loadValid[previous.index] = false;
+                    loadInvalid = true;
+                }
+                continue;
             }
-        }
-        if (cellIndex != -1) {
-            if (cellIndex > 0 && cells.get(cellIndex).isRowEnd()) {
-                cells.get(cellIndex - 1).rowEnd(true);
+            if (kept != i) {
+                cells.set(kept, cell);
+                store.move(i, kept);
+                cell.index = kept;
+                loadInvalid = true;
             }
-            cells.remove(cellIndex);
+            previous = cell;
+            kept++;
         }
+        cells.subList(kept, cells.size()).clear();
+        store.size = kept;
     }
 
     void removeAllCells() {
+        for (Cell cell : cells) {
+            release(cell);
+        }
         cells.clear();
-        rows = 0;
-        columns = 0;
+        widgetCells.clear();
+        removedCells = 0;
+        store.clear();
+        structureInvalid = true;
+        sizeInvalid = true;
+        solver.rows = 0;
+        solver.columns = 0;
+    }
+
+    private void release(Cell cell) {
+        if (cell.widget != null) cell.widget.removePropertyChangeListener(widgetListener);
+        cell.layout = null;
     }
 
     @SuppressWarnings("unchecked")
     <T extends Component> Cell<T> getCell(T widget) {
-        for (Cell c : cells) {
-            if (c.widget == widget) return (Cell<T>) c;
-        }
-        return null;
+        return (Cell<T>) widgetCells.get(widget);
     }
 
     List<Cell<? extends Component>> getCells() {
+        compactCells();
         return cells;
     }
 
+    /**
+     * Size only query, never touches bounds of widgets. Returned instance is cached (internal use only, must not be modified),
+     * it is valid until next invalidation.
+     */
     Dimension getMinSize() {
-        if (sizeInvalid) computeSize(true);
-        return new Dimension(tableMinWidth, tableMinHeight);
+        if (sizeInvalid) computeSize();
+        return minSize;
     }
 
+    /**
+     * Size only query, never touches bounds of widgets. Returned instance is cached (internal use only, must not be modified),
+     * it is valid until next invalidation.
+     */
     Dimension getPrefSize() {
-        if (sizeInvalid) computeSize(true);
-        return new Dimension(tablePrefWidth, tablePrefHeight);
+        if (sizeInvalid) computeSize();
+        return prefSize;
     }
 
     void pad(int top, int left, int bottom, int right) {
@@ -183,422 +348,595 @@ class CompositeLayout {
         }
     }
 
-    Insets getPad() {
-        return new Insets(padTop, padLeft, padBottom, padRight);
+    Insets getPad(Insets pad) {
+        pad.set(padTop, padLeft, padBottom, padRight);
+        return pad;
     }
 
     int getAlign() {
         return align;
     }
 
-    int getColumns() {
-        return columns;
+    void parallelLayout(ForkJoinPool pool) {
+        if (parallelPool != pool) {
+            parallelPool = pool;
+            invalidateCompositeIfValid();
+        }
     }
 
-    int getRows() {
-        return rows;
+    ForkJoinPool getParallelPool() {
+        return parallelPool;
     }
 
-    int[] ensureSize(int[] array, int size) {
-        if (array == null || array.length < size) return new int[size];
-        for (int i = 0, n = array.length; i < n; i++) {
-            array[i] = 0;
+    void sizeProvider(SizeProvider sizeProvider) {
+        if (this.sizeProvider != sizeProvider) {
+            this.sizeProvider = sizeProvider;
+            sizeInvalid = true;
+            invalidateCompositeIfValid();
         }
-        return array;
     }
 
-    boolean[] ensureSize(boolean[] array, int size) {
-        if (array == null || array.length < size) return new boolean[size];
-        for (int i = 0, n = array.length; i < n; i++) {
-            array[i] = false;
+    SizeProvider getSizeProvider() {
+        return sizeProvider;
+    }
+
+    void layoutMemo(int capacity) {
+        if (capacity != getLayoutMemo()) {
+            memo = capacity > 0 ? new LayoutMemo(capacity) : null;
         }
-        return array;
     }
 
-    void layout() {
-        computeLayout();
-        for (Cell cell : cells) {
-            if (cell.hasWidget()) {
-                Component component = cell.getWidget();
-                component.setLocation(cell.widgetX, cell.widgetY);
-                component.setSize(cell.widgetWidth, cell.widgetHeight);
+    int getLayoutMemo() {
+        return memo != null ? memo.getCapacity() : 0;
+    }
+
+    boolean isOverlapping() {
+        return store.overlapping;
+    }
+
+    /**
+     * Finds cells intersecting given area of composite, see {@link LayoutSolver#findCells(int, int, int, int)}.
+     * Found cell indexes are available by {@link #getFoundCell(int)}.
+     *
+     * @return -1 if layout is not solved or widgets can exceed their cells (all cells must be tested)
+     */
+    int findCells(int x1, int y1, int x2, int y2) {
+        if (structureInvalid || removedCells > 0 || store.overlapping) return -1;
+        return solver.findCells(x1, y1, x2, y2);
+    }
+
+    int getFoundCell(int k) {
+        return solver.areaCells[k];
+    }
+
+    Component getWidget(int cellIndex) {
+        return cells.get(cellIndex).widget;
+    }
+
+    void rowStripes(Color rowStripes) {
+        if (this.rowStripes != rowStripes) {
+            this.rowStripes = rowStripes;
+            composite.repaint();
+        }
+    }
+
+    Color getRowStripes() {
+        return rowStripes;
+    }
+
+    void rowSeparator(Color rowSeparator) {
+        if (this.rowSeparator != rowSeparator) {
+            this.rowSeparator = rowSeparator;
+            composite.repaint();
+        }
+    }
+
+    Color getRowSeparator() {
+        return rowSeparator;
+    }
+
+    void repaint() {
+        composite.repaint();
+    }
+
+    /**
+     * Paints row stripes, cell backgrounds, row separators and cell borders from geometry of last layout
+     * (only parts intersecting given clip area). Cell decorations cover cell without spacing, it is area of widget with its pad.
+     * Rows and cells in clip are found by binary search (see {@link #findCells(int, int, int, int)}), other are not visited.
+     */
+    void paintDecorations(Graphics g, int x1, int y1, int x2, int y2) {
+        int columns = solver.columns, rows = solver.rows;
+        int[] columnX = solver.columnX, rowY = solver.rowY;
+        if (structureInvalid || removedCells > 0 || columnX == null || columnX.length <= columns || rowY.length <= rows) return; // not laid out yet
+        int tableX = solver.tableX, tableY = solver.tableY, tableWidth = columnX[columns];
+        if (tableX >= x2 || tableY >= y2 || tableX + tableWidth <= x1 || tableY + rowY[rows] <= y1) return;
+        int firstRow = 0, lastRow = rows; // negative rows (overlapping) are not sorted, all rows are visited then
+        if (!store.overlapping) {
+            firstRow = LayoutSolver.firstEndAfter(rowY, rows, y1 - tableY);
+            lastRow = LayoutSolver.firstStartFrom(rowY, rows, y2 - tableY);
+        }
+        if (rowStripes != null) {
+            g.setColor(rowStripes);
+            for (int row = firstRow | 1; row < lastRow; row += 2) {
+                g.fillRect(tableX, tableY + rowY[row], tableWidth, rowY[row + 1] - rowY[row]);
+            }
+        }
+        int found = findCells(x1, y1, x2, y2);
+        int n = found >= 0 ? found : store.size;
+        boolean borders = false;
+        for (int k = 0; k < n; k++) {
+            int i = found >= 0 ? solver.areaCells[k] : k;
+            Cell<?> cell = cells.get(i);
+            if (cell.border != null) borders = true;
+            if (cell.background == null || !cellBounds(i, paintBounds) || !intersects(paintBounds, x1, y1, x2, y2)) continue;
+            g.setColor(cell.background);
+            g.fillRect(paintBounds.x, paintBounds.y, paintBounds.width, paintBounds.height);
+        }
+        if (rowSeparator != null) {
+            g.setColor(rowSeparator);
+            for (int row = Math.max(1, firstRow), end = Math.min(rows - 1, lastRow); row <= end; row++) { // line is above its row
+                g.fillRect(tableX, tableY + rowY[row] - 1, tableWidth, 1);
+            }
+        }
+        if (borders) {
+            for (int k = 0; k < n; k++) {
+                int i = found >= 0 ? solver.areaCells[k] : k;
+                Cell<?> cell = cells.get(i);
+                if (cell.border == null || !cellBounds(i, paintBounds) || !intersects(paintBounds, x1, y1, x2, y2)) continue;
+                cell.border.paintBorder(composite, g, paintBounds.x, paintBounds.y, paintBounds.width, paintBounds.height);
             }
         }
     }
 
+    /**
+     * Bounds of cell without spacing (computed pad minus pad of cell) from geometry of last layout.
+     *
+     * @return false if cell has no area
+     */
+    private boolean cellBounds(int i, Rectangle bounds) {
+        CellStore s = store;
+        int column = s.column[i], row = s.row[i];
+        int columnEnd = Math.min(column + s.colspan[i], solver.columns), rowEnd = Math.min(row + s.rowspan[i], solver.rows);
+        int[] columnX = solver.columnX, rowY = solver.rowY;
+        int left = solver.tableX + columnX[column] + s.computedPadLeft[i] - s.padLeft[i];
+        int top = solver.tableY + rowY[row] + s.computedPadTop[i] - s.padTop[i];
+        int right = solver.tableX + columnX[columnEnd] - s.computedPadRight[i] + s.padRight[i];
+        int bottom = solver.tableY + rowY[rowEnd] - s.computedPadBottom[i] + s.padBottom[i];
+        bounds.setBounds(left, top, right - left, bottom - top);
+        return right > left && bottom > top;
+    }
+
+    private static boolean intersects(Rectangle bounds, int x1, int y1, int x2, int y2) {
+        return bounds.x < x2 && bounds.y < y2 && bounds.x + bounds.width > x1 && bounds.y + bounds.height > y1;
+    }
+
+    int getColumns() {
+        updateCells();
+        return solver.columns;
+    }
+
+    int getRows() {
+        updateCells();
+        return solver.rows;
+    }
+
+    /**
+     * Computes layout and applies bounds to widgets. Widgets with unchanged bounds are skipped, moved widgets get single setBounds call.
+     * Composite repaints only union of old and new bounds of moved widgets.
+     */
+    void layout() {
+        revalidateEvent = null;
+        if (solvedWidth == composite.getWidth() && solvedHeight == composite.getHeight() && !sizeInvalid && !loadInvalid) {
+            solvedWidth = -1; // bounds were already applied by parallel solve of parent composite
+            return;
+        }
+        if (parallelPool != null) {
+            boolean monitored = LayoutMonitor.enabled;
+            long start = monitored ? System.nanoTime() : 0;
+            ParallelSolver.layout(this, parallelPool, composite.getWidth(), composite.getHeight());
+            solvedWidth = -1;
+            laidOutWidth = -1;
+            if (monitored) {
+                LayoutMonitor.passCompleted(composite, LayoutMonitor.Phase.COMPUTE_LAYOUT, System.nanoTime() - start, treeCells, 0);
+            }
+            return;
+        }
+        if (sizeInvalid) {
+            computeSize(); // invalid widgets (e.g. nested composite) are measured again
+        } else {
+            loadCells();
+        }
+        composite.getInsets(borderInsets);
+        int width = composite.getWidth(), height = composite.getHeight();
+        int top = padTop + borderInsets.top, left = padLeft + borderInsets.left;
+        int bottom = padBottom + borderInsets.bottom, right = padRight + borderInsets.right;
+        if (laidOutVersion != store.version || laidOutWidth != width || laidOutHeight != height || laidOutAlign != align
+                || laidOutInsets.top != top || laidOutInsets.left != left || laidOutInsets.bottom != bottom || laidOutInsets.right != right) {
+            computeLayout(); // measured sizes of cells changed, otherwise only invalid nested widgets are laid out by validateTree
+            laidOutVersion = store.version;
+            laidOutWidth = width;
+            laidOutHeight = height;
+            laidOutInsets.set(top, left, bottom, right);
+            laidOutAlign = align;
+        }
+        applyBounds();
+    }
+
+    private void applyBounds() {
+        int[] widgetX = store.widgetX, widgetY = store.widgetY, widgetWidth = store.widgetWidth, widgetHeight = store.widgetHeight;
+        int dirtyX1 = Integer.MAX_VALUE, dirtyY1 = Integer.MAX_VALUE, dirtyX2 = Integer.MIN_VALUE, dirtyY2 = Integer.MIN_VALUE;
+        for (int i = 0, n = store.size; i < n; i++) {
+            Component component = cells.get(i).widget;
+            if (component == null) continue;
+            int x = widgetX[i], y = widgetY[i], width = widgetWidth[i], height = widgetHeight[i];
+            int oldX = component.getX(), oldY = component.getY(), oldWidth = component.getWidth(), oldHeight = component.getHeight();
+            if (x == oldX && y == oldY && width == oldWidth && height == oldHeight) continue;
+            dirtyX1 = min(dirtyX1, min(x, oldX));
+            dirtyY1 = min(dirtyY1, min(y, oldY));
+            dirtyX2 = max(dirtyX2, max(x + width, oldX + oldWidth));
+            dirtyY2 = max(dirtyY2, max(y + height, oldY + oldHeight));
+            component.setBounds(x, y, width, height);
+        }
+        if (dirtyX1 < dirtyX2 && dirtyY1 < dirtyY2) {
+            composite.repaint(dirtyX1, dirtyY1, dirtyX2 - dirtyX1, dirtyY2 - dirtyY1);
+        }
+    }
+
     void invalidateCompositeIfValid() {
         if (composite.isValid()) {
             composite.invalidate();
         }
     }
 
+    /**
+     * Forgets measured sizes of all cells and last layout (replay and benchmarks measure and solve each pass).
+     */
+    void invalidateAllMeasures() {
+        Arrays.fill(store.measureValid, 0, store.size, false);
+        sizeInvalid = true;
+        laidOutWidth = -1;
+    }
+
     void invalidateSize() {
         sizeInvalid = true;
     }
 
-    void updateCells() {
-        columns = 0;
-        rows = 0;
-        if (!cells.isEmpty()) {
-            int column = 0;
-            int row = 0;
-            List<List<Cell>> table = new ArrayList<>();
-            List<Cell> tableRow = new ArrayList<>();
-            for (Cell cell : cells) {
-                cell.column = column;
-                cell.row = row;
-                for (int i = 0; i < cell.colspan; i++) {
-                    tableRow.add(cell);
-                }
-                if (cell.isRowEnd()) {
-                    row++;
-                    column = 0;
-                    table.add(tableRow);
-                    tableRow = new ArrayList<>();
-                } else {
-                    column += cell.colspan;
-                }
-            }
-            if (!tableRow.isEmpty()) table.add(tableRow); //add last row if is it row without Cell with rowEnd
-            if (!table.isEmpty()) {
-                List<Cell> tableFirstRow = table.get(0);
-                for (Cell cell : tableFirstRow) {
-                    cell.cellAboveIndex = -1;
-                }
-            }
-            if (table.size() > 1) {
-                for (int i = 1; i < table.size(); i++) {
-                    List<Cell> tableRowAbove = table.get(i - 1);
-                    List<Cell> tableRowActual = table.get(i);
-                    for (int j = 0; j < tableRowActual.size(); j = j + tableRowActual.get(j).colspan) {
-                        if (j >= tableRowAbove.size()) break;
-                        tableRowActual.get(j).cellAboveIndex = cells.indexOf(tableRowAbove.get(j));
-                    }
-                }
-            }
-            for (List<Cell> tRow : table) {
-                columns = Math.max(columns, tRow.size());
+    /**
+     * Height of some widgets depends on their width (wrapped JTextArea, editor pane, HTML text) and size provider can
+     * answer by width too, so resize of composite measures such cells again. Other cells keep their measurement.
+     */
+    void invalidateWidthDependentMeasures() {
+        compactCells();
+        for (int i = 0, n = store.size; i < n; i++) {
+            Cell<?> cell = cells.get(i);
+            if (cell.widget != null && (cell.getEffectiveSizeProvider() != null || isWidthDependent(cell.widget))) {
+                store.measureValid[i] = false;
+                sizeInvalid = true;
             }
-            rows = table.size();
         }
     }
 
-    @SuppressWarnings("Duplicates")
-    private void computeSize(boolean flushCellSizesCacheAfter) {
-        updateCells();
-        fillCellSizesCache();
-        Insets borderInsets = composite.getInsets();
-        sizeInvalid = false;
-        columnMinWidth = ensureSize(columnMinWidth, columns);
-        rowMinHeight = ensureSize(rowMinHeight, rows);
-        columnPrefWidth = ensureSize(columnPrefWidth, columns);
-        rowPrefHeight = ensureSize(rowPrefHeight, rows);
-        columnWidth = ensureSize(columnWidth, columns);
-        rowHeight = ensureSize(rowHeight, rows);
-        expandWidth = ensureSize(expandWidth, columns);
-        expandHeight = ensureSize(expandHeight, rows);
-        int spaceRightLast = 0;
-        for (Cell cell : cells) {
-            // Collect columns/rows that expand.
-            if (cell.expandY && !expandHeight[cell.row]) {
-                expandHeight[cell.row] = true;
-            }
-            if (cell.colspan == 1 && cell.expandX && !expandWidth[cell.column]) {
-                expandWidth[cell.column] = true;
-            }
-            // Compute combined padding/spacing for cells. Spacing between widgets isn't additive, the larger is used. Also, no spacing around edges.
-            cell.computedPadLeft = cell.padLeft + (cell.column == 0 ? 0 : max(0, cell.spaceLeft - spaceRightLast));
-            cell.computedPadTop = cell.padTop;
-            if (cell.cellAboveIndex != -1) {
-                Cell above = cells.get(cell.cellAboveIndex);
-                cell.computedPadTop += Math.max(0, cell.spaceTop - above.spaceBottom);
-            }
-            int spaceRight = cell.spaceRight;
-            cell.computedPadRight = cell.padRight + ((cell.column + cell.colspan) == columns ? 0 : spaceRight);
-            cell.computedPadBottom = cell.padBottom + (cell.row == rows - 1 ? 0 : cell.spaceBottom);
-            spaceRightLast = spaceRight;
-            // Determine minimum and preferred cell sizes.
-            Size size = cellSizesShortTimeCache.get(cell);
-            if (cell.colspan == 1) { // Spanned column min and pref width is add later.
-                int hPadding = cell.computedPadLeft + cell.computedPadRight;
-                columnPrefWidth[cell.column] = max(columnPrefWidth[cell.column], size.pref.width + hPadding);
-                columnMinWidth[cell.column] = max(columnMinWidth[cell.column], size.min.width + hPadding);
-            }
-            int vPadding = cell.computedPadTop + cell.computedPadBottom;
-            rowPrefHeight[cell.row] = max(rowPrefHeight[cell.row], size.pref.height + vPadding);
-            rowMinHeight[cell.row] = max(rowMinHeight[cell.row], size.min.height + vPadding);
-        }
-        // Colspan with expand will expand all spanned columns if none of the spanned columns have expand.
-        outer:
-        for (Cell cell : cells) {
-            if (!cell.expandX) continue;
-            for (int column = cell.column, nn = column + cell.colspan; column < nn; column++) {
-                if (expandWidth[column]) continue outer;
-            }
-            for (int column = cell.column, nn = column + cell.colspan; column < nn; column++) {
-                expandWidth[column] = true;
-            }
-        }
-        // Distribute any additional min and pref width add by colspanned cells to the columns spanned.
-        for (Cell cell : cells) {
-            if (cell.colspan == 1) continue;
-            int spannedMinWidth = -(cell.computedPadLeft + cell.computedPadRight), spannedPrefWidth = spannedMinWidth;
-            for (int column = cell.column, nn = column + cell.colspan; column < nn; column++) {
-                spannedMinWidth += columnMinWidth[column];
-                spannedPrefWidth += columnPrefWidth[column];
-            }
-            // Distribute extra space using expand, if any columns have expand.
-            int totalExpandWidth = 0;
-            for (int column = cell.column, nn = column + cell.colspan; column < nn; column++) {
-                totalExpandWidth += expandWidth[column] ? 1 : 0;
-            }
-            Size size = cellSizesShortTimeCache.get(cell);
-            int extraMinWidth = max(0, size.min.width - spannedMinWidth);
-            int extraPrefWidth = max(0, size.pref.width - spannedPrefWidth);
-            for (int column = cell.column, nn = column + cell.colspan; column < nn; column++) {
-                float ratio = totalExpandWidth == 0 ? 1f / cell.colspan : expandWidth[column] ? 1 / (float) totalExpandWidth : 0;
-                columnMinWidth[column] += (int) (extraMinWidth * ratio);
-                columnPrefWidth[column] += (int) (extraPrefWidth * ratio);
-            }
+    private static boolean isWidthDependent(Component widget) {
+        if (widget instanceof JTextArea) return ((JTextArea) widget).getLineWrap();
+        if (widget instanceof JEditorPane) return true;
+        return widget instanceof JComponent && ((JComponent) widget).getClientProperty(BasicHTML.propertyKey) != null;
+    }
+
+    /**
+     * Forgets measured size of one cell (size constraint of cell or widget changed), other cells keep their measurement.
+     */
+    void invalidateMeasure(int cellIndex) {
+        store.measureValid[cellIndex] = false;
+        store.loadValid[cellIndex] = false;
+        loadInvalid = true;
+        sizeInvalid = true;
+        requestRevalidate();
+    }
+
+    /**
+     * Constraint of one cell changed (pad, space, expand, uniform). Only this cell is loaded again, nothing is measured,
+     * sizes of all rows and columns are solved again by one pass over store.
+     */
+    void invalidateConstraint(int cellIndex) {
+        store.loadValid[cellIndex] = false;
+        loadInvalid = true;
+        sizeInvalid = true;
+        requestRevalidate();
+    }
+
+    /**
+     * Placement of one cell changed (fill, align). Only this cell is loaded again and only this composite is laid out
+     * (later on EDT), composite and its parents are not invalidated and sizes of composite stay valid.
+     * When composite is invalid, pending validation lays it out.
+     */
+    void invalidatePlacement(int cellIndex) {
+        store.loadValid[cellIndex] = false;
+        loadInvalid = true;
+        if (placementRequested || !composite.isValid()) return;
+        placementRequested = true;
+        SwingUtilities.invokeLater(this::layoutPlacement);
+    }
+
+    private void layoutPlacement() {
+        placementRequested = false;
+        if (loadInvalid && composite.isValid()) composite.layoutPlacement(); // otherwise laid out meanwhile or validation is pending
+    }
+
+    /**
+     * Changes made in one EDT event are coalesced to one revalidation. Cell setters must be called on EDT, off EDT
+     * there is no current event and each change revalidates.
+     */
+    private void requestRevalidate() {
+        AWTEvent event = EventQueue.getCurrentEvent();
+        if (event != null && event == revalidateEvent) return;
+        revalidateEvent = event;
+        composite.revalidate();
+        composite.repaint();
+    }
+
+    /**
+     * Null property name means that unspecified properties changed (see {@link PropertyChangeEvent}), widget is measured again.
+     */
+    private void widgetPropertyChanged(PropertyChangeEvent event) {
+        String name = event.getPropertyName();
+        if (name != null) {
+            switch (name) {
+                case "font":
+                case "text":
+                case "icon":
+                case "border":
+                case "minimumSize":
+                case "preferredSize":
+                case "maximumSize":
+                    break;
+                default:
+                    return;
+            }
+        }
+        Cell cell = getCell((Component) event.getSource());
+        if (cell != null) {
+            compactCells(); // index of cell is valid after removed cells are dropped
+            invalidateMeasure(cell.index);
         }
-        // Collect uniform size.
-        int uniformMinWidth = 0, uniformMinHeight = 0;
-        int uniformPrefWidth = 0, uniformPrefHeight = 0;
-        for (Cell cell : cells) {
-            // Collect uniform sizes.
-            if (cell.uniformX == Boolean.TRUE && cell.colspan == 1) {
-                int hpadding = cell.computedPadLeft + cell.computedPadRight;
-                uniformMinWidth = max(uniformMinWidth, columnMinWidth[cell.column] - hpadding);
-                uniformPrefWidth = max(uniformPrefWidth, columnPrefWidth[cell.column] - hpadding);
-            }
-            if (cell.uniformY == Boolean.TRUE) {
-                int vpadding = cell.computedPadTop + cell.computedPadBottom;
-                uniformMinHeight = max(uniformMinHeight, rowMinHeight[cell.row] - vpadding);
-                uniformPrefHeight = max(uniformPrefHeight, rowPrefHeight[cell.row] - vpadding);
-            }
+    }
+
+    /**
+     * Rebuilds grid topology (column, row and cell above of each cell) in one linear pass, see {@link LayoutSolver#updateTopology()}.
+     * Topology is rebuilt only after structural change (add, row, remove, colspan, rowspan, rowEnd), not on each computeSize.
+     */
+    void updateCells() {
+        compactCells();
+        if (!structureInvalid) return;
+        structureInvalid = false;
+        loadCells(); // topology is solved from loaded colspan, rowspan and row ends
+        solver.updateTopology();
+    }
+
+    void invalidateStructure() {
+        store.invalidateLoads();
+        loadInvalid = true;
+        structureInvalid = true;
+        sizeInvalid = true;
+        requestRevalidate();
+    }
+
+    int getColumn(int cellIndex) {
+        updateCells();
+        return store.column[cellIndex];
+    }
+
+    int getRow(int cellIndex) {
+        updateCells();
+        return store.row[cellIndex];
+    }
+
+    Rectangle getWidgetRect(int cellIndex, Rectangle rect) {
+        if (cellIndex >= store.size) {
+            rect.setBounds(0, 0, 0, 0);
+        } else {
+            rect.setBounds(store.widgetX[cellIndex], store.widgetY[cellIndex], store.widgetWidth[cellIndex], store.widgetHeight[cellIndex]);
         }
-        // Size uniform cells to the same width/height.
-        if (uniformPrefWidth > 0 || uniformPrefHeight > 0) {
-            for (Cell cell : cells) {
-                if (uniformPrefWidth > 0 && cell.uniformX == Boolean.TRUE && cell.colspan == 1) {
-                    int hPadding = cell.computedPadLeft + cell.computedPadRight;
-                    columnMinWidth[cell.column] = uniformMinWidth + hPadding;
-                    columnPrefWidth[cell.column] = uniformPrefWidth + hPadding;
-                }
-                if (uniformPrefHeight > 0 && cell.uniformY == Boolean.TRUE) {
-                    int vPadding = cell.computedPadTop + cell.computedPadBottom;
-                    rowMinHeight[cell.row] = uniformMinHeight + vPadding;
-                    rowPrefHeight[cell.row] = uniformPrefHeight + vPadding;
-                }
-            }
+        return rect;
+    }
+
+    Insets getComputedPad(int cellIndex, Insets pad) {
+        if (cellIndex >= store.size) {
+            pad.set(0, 0, 0, 0);
+        } else {
+            pad.set(store.computedPadTop[cellIndex], store.computedPadLeft[cellIndex], store.computedPadBottom[cellIndex], store.computedPadRight[cellIndex]);
         }
-        // Determine composite min and pref size.
-        tableMinWidth = 0;
-        tableMinHeight = 0;
-        tablePrefWidth = 0;
-        tablePrefHeight = 0;
-        for (int i = 0; i < columns; i++) {
-            tableMinWidth += columnMinWidth[i];
-            tablePrefWidth += columnPrefWidth[i];
+        return pad;
+    }
+
+    void computeSize() {
+        boolean monitored = LayoutMonitor.enabled;
+        long start = monitored ? System.nanoTime() : 0;
+        widgetQueries = 0;
+        if (parallelPool != null) {
+            ParallelSolver.computeSize(this, parallelPool);
+        } else {
+            updateCells();
+            loadCells();
+            measureCells();
+            composite.getInsets(borderInsets);
+            solveSize();
         }
-        for (int i = 0; i < rows; i++) {
-            tableMinHeight += rowMinHeight[i];
-            tablePrefHeight += max(rowMinHeight[i], rowPrefHeight[i]);
+        if (monitored) {
+            LayoutMonitor.passCompleted(composite, LayoutMonitor.Phase.COMPUTE_SIZE, System.nanoTime() - start, store.size, widgetQueries);
         }
+    }
 
-        int hPadding = padLeft + padRight + borderInsets.left + borderInsets.right;
-        int vPadding = padTop + padBottom + borderInsets.top + borderInsets.bottom;
-        tableMinWidth = tableMinWidth + hPadding;
-        tableMinHeight = tableMinHeight + vPadding;
-        tablePrefWidth = max(tablePrefWidth + hPadding, tableMinWidth);
-        tablePrefHeight = max(tablePrefHeight + vPadding, tableMinHeight);
-        if (flushCellSizesCacheAfter) cellSizesShortTimeCache.clear();
+    /**
+     * Pure computation over cell store, it doesn't touch widgets (can run outside of EDT).
+     */
+    private void solveSize() {
+        sizeInvalid = false;
+        solver.insets(padTop + borderInsets.top, padLeft + borderInsets.left, padBottom + borderInsets.bottom, padRight + borderInsets.right);
+        solver.solveSize();
+        minSize.setSize(solver.tableMinWidth, solver.tableMinHeight);
+        prefSize.setSize(solver.tablePrefWidth, solver.tablePrefHeight);
     }
 
-    @SuppressWarnings("Duplicates")
-    private void computeLayout() {
+    void computeLayout() {
+        boolean monitored = LayoutMonitor.enabled;
+        long start = monitored ? System.nanoTime() : 0;
         if (sizeInvalid) {
-            computeSize(false);
+            computeSize(); // measured sizes of cells are kept in store while size is valid
         } else {
-            fillCellSizesCache();
-        }
-        Insets borderInsets = composite.getInsets();
-        int hPadding = padLeft + padRight + borderInsets.left + borderInsets.right;
-        int vPadding = padTop + padBottom + borderInsets.top + borderInsets.bottom;
-        int totalExpandWidth = 0, totalExpandHeight = 0;
-        for (int i = 0; i < columns; i++) {
-            totalExpandWidth += expandWidth[i] ? 1 : 0;
-        }
-        for (int i = 0; i < rows; i++) {
-            totalExpandHeight += expandHeight[i] ? 1 : 0;
-        }
-        // Size columns and rows between min and pref size using (preferred - min) size to weight distribution of extra space.
-        int[] columnWeightedWidth;
-        int totalGrowWidth = tablePrefWidth - tableMinWidth;
-        if (totalGrowWidth == 0) {
-            columnWeightedWidth = columnMinWidth;
-        } else {
-            int extraWidth = min(totalGrowWidth, max(0, composite.getWidth() - tableMinWidth));
-            columnWeightedWidth = this.columnWeightedWidth = ensureSize(this.columnWeightedWidth, columns);
-            for (int i = 0; i < columns; i++) {
-                int growWidth = columnPrefWidth[i] - columnMinWidth[i];
-                float growRatio = growWidth / (float) totalGrowWidth;
-                columnWeightedWidth[i] = (int) (columnMinWidth[i] + extraWidth * growRatio);
-            }
+            loadCells(); // placement constraints (fill, align) of some cells changed
         }
-        int[] rowWeightedHeight;
-        int totalGrowHeight = tablePrefHeight - tableMinHeight;
-        if (totalGrowHeight == 0) {
-            rowWeightedHeight = rowMinHeight;
+        composite.getInsets(borderInsets);
+        int width = composite.getWidth(), height = composite.getHeight();
+        if (memo == null) {
+            solveLayout(width, height);
         } else {
-            rowWeightedHeight = this.rowWeightedHeight = ensureSize(this.rowWeightedHeight, rows);
-            int extraHeight = min(totalGrowHeight, max(0, composite.getHeight() - tableMinHeight));
-            for (int i = 0; i < rows; i++) {
-                int growHeight = rowPrefHeight[i] - rowMinHeight[i];
-                float growRatio = growHeight / (float) totalGrowHeight;
-                rowWeightedHeight[i] = (int) (rowMinHeight[i] + extraHeight * growRatio);
+            int top = padTop + borderInsets.top, left = padLeft + borderInsets.left;
+            int bottom = padBottom + borderInsets.bottom, right = padRight + borderInsets.right;
+            if (!memo.restore(solver, width, height, top, left, bottom, right, align)) {
+                solveLayout(width, height);
+                memo.put(solver, width, height, top, left, bottom, right, align);
             }
         }
-        // Determine widget and cell sizes (before expand or fill).
-        for (Cell c : cells) {
-            int spannedWeightedWidth = 0;
-            for (int column = c.column, nn = column + c.colspan; column < nn; column++) {
-                spannedWeightedWidth += columnWeightedWidth[column];
-            }
-            int weightedHeight = rowWeightedHeight[c.row];
-            Size size = cellSizesShortTimeCache.get(c);
-            c.widgetWidth = min(spannedWeightedWidth - c.computedPadLeft - c.computedPadRight, size.pref.width);
-            c.widgetHeight = min(weightedHeight - c.computedPadTop - c.computedPadBottom, size.pref.height);
-            if (c.colspan == 1) {
-                columnWidth[c.column] = max(columnWidth[c.column], spannedWeightedWidth);
-            }
-            rowHeight[c.row] = max(rowHeight[c.row], weightedHeight);
+        LayoutTrace trace = LayoutTrace.recording;
+        if (trace != null) {
+            trace.record(composite, store, borderInsets, getPad(padInsets), align);
         }
-        // Distribute remaining space to any expanding columns/rows.
-        if (totalExpandWidth > 0) {
-            int extra = composite.getWidth() - hPadding;
-            for (int i = 0; i < columns; i++) {
-                extra -= columnWidth[i];
-            }
-            int used = 0;
-            int lastIndex = 0;
-            for (int i = 0; i < columns; i++) {
-                if (!expandWidth[i]) continue;
-                int amount = (int) (extra * (expandWidth[i] ? 1 : 0) / (float) totalExpandWidth);
-                columnWidth[i] += amount;
-                used += amount;
-                lastIndex = i;
-            }
-            columnWidth[lastIndex] += extra - used;
+        if (monitored) {
+            LayoutMonitor.passCompleted(composite, LayoutMonitor.Phase.COMPUTE_LAYOUT, System.nanoTime() - start, store.size, 0);
         }
-        if (totalExpandHeight > 0) {
-            int extra = composite.getHeight() - vPadding;
-            for (int i = 0; i < rows; i++) {
-                extra -= rowHeight[i];
-            }
-            int used = 0;
-            int lastIndex = 0;
-            for (int i = 0; i < rows; i++) {
-                if (!expandHeight[i]) continue;
-                int amount = (int) (extra * (expandHeight[i] ? 1 : 0) / (float) totalExpandHeight);
-                rowHeight[i] += amount;
-                used += amount;
-                lastIndex = i;
-            }
-            rowHeight[lastIndex] += extra - used;
-        }
-        // Distribute any additional width add by colSpanned cells to the columns spanned.
-        for (Cell c : cells) {
-            if (c.colspan == 1) continue;
-            int extraWidth = 0;
-            for (int column = c.column, nn = column + c.colspan; column < nn; column++) {
-                extraWidth += columnWeightedWidth[column] - columnWidth[column];
-            }
-            extraWidth -= Math.max(0, c.computedPadLeft + c.computedPadRight);
-            extraWidth /= c.colspan;
-            if (extraWidth > 0) {
-                for (int column = c.column, nn = column + c.colspan; column < nn; column++) {
-                    columnWidth[column] += extraWidth;
-                }
-            }
+    }
+
+    /**
+     * Pure computation over cell store for given composite size, it doesn't touch widgets (can run outside of EDT).
+     */
+    private void solveLayout(int width, int height) {
+        solver.insets(padTop + borderInsets.top, padLeft + borderInsets.left, padBottom + borderInsets.bottom, padRight + borderInsets.right);
+        solver.solveLayout(width, height, align);
+    }
+
+    /**
+     * Loads constraints of cells changed since last load.
+     */
+    private void loadCells() {
+        if (!loadInvalid) return;
+        loadInvalid = false;
+        boolean[] loadValid = store.loadValid;
+        for (int i = 0, n = store.size; i < n; i++) {
+            if (!loadValid[i]) store.load(i, cells.get(i), composite);
         }
-        // Determine composite size.
-        int tableWidth = hPadding, tableHeight = vPadding;
-        for (int i = 0; i < columns; i++) {
-            tableWidth += columnWidth[i];
-        }
-        for (int i = 0; i < rows; i++) {
-            tableHeight += rowHeight[i];
-        }
-        // Position composite within the container.
-        int x = padLeft + borderInsets.left;
-        if ((align & RIGHT) != 0) {
-            x += composite.getWidth() - tableWidth;
-        } else if ((align & LEFT) == 0) { // Center
-            x += (composite.getWidth() - tableWidth) / 2;
-        }
-        int y = padTop + borderInsets.top;
-        if ((align & BOTTOM) != 0) {
-            y += composite.getHeight() - tableHeight;
-        } else if ((align & TOP) == 0) { // Center
-            y += (composite.getHeight() - tableHeight) / 2;
-        }
-        // Position widgets within cells.
-        int currentX = x, currentY = y;
-        for (Cell c : cells) {
-            int spannedCellWidth = 0;
-            for (int column = c.column, nn = column + c.colspan; column < nn; column++) {
-                spannedCellWidth += columnWidth[column];
-            }
-            spannedCellWidth -= c.computedPadLeft + c.computedPadRight;
-            currentX += c.computedPadLeft;
-            Size size = null;
-            if (c.fillX || c.fillY) {
-                size = cellSizesShortTimeCache.get(c);
-            }
-            if (c.fillX) {
-                c.widgetWidth = spannedCellWidth;
-                if (size.max.width > 0) {
-                    c.widgetWidth = min(c.widgetWidth, size.max.width);
-                }
-            }
-            if (c.fillY) {
-                c.widgetHeight = rowHeight[c.row] - c.computedPadTop - c.computedPadBottom;
-                if (size.max.height > 0) {
-                    c.widgetHeight = min(c.widgetHeight, size.max.height);
-                }
-            }
-            if ((c.align & LEFT) != 0) {
-                c.widgetX = currentX;
-            } else if ((c.align & RIGHT) != 0) {
-                c.widgetX = currentX + spannedCellWidth - c.widgetWidth;
-            } else {
-                c.widgetX = currentX + (spannedCellWidth - c.widgetWidth) / 2;
-            }
-            if ((c.align & TOP) != 0) {
-                c.widgetY = currentY + c.computedPadTop;
-            } else if ((c.align & BOTTOM) != 0) {
-                c.widgetY = currentY + rowHeight[c.row] - c.widgetHeight - c.computedPadBottom;
-            } else {
-                c.widgetY = currentY + (rowHeight[c.row] - c.widgetHeight + c.computedPadTop - c.computedPadBottom) / 2;
-            }
-            if (c.isRowEnd()) {
-                currentX = x;
-                currentY += rowHeight[c.row];
-            } else {
-                currentX += spannedCellWidth + c.computedPadRight;
-            }
+    }
+
+    /**
+     * Measures only cells without valid measurement. Measurement of widget is valid until the widget is invalidated
+     * (Swing invalidation, e.g. text/font/border change) or one of its size properties or size constraints of cell changes.
+     */
+    private void measureCells() {
+        for (int i = 0, n = store.size; i < n; i++) {
+            measureCell(i, cells.get(i));
         }
-        cellSizesShortTimeCache.clear();
     }
 
-    private void fillCellSizesCache() {
-        cellSizesShortTimeCache.clear();
-        for (Cell cell : cells) {
-            cellSizesShortTimeCache.put(cell, cell.getSize());
+    /**
+     * Cells with size provider are measured always, provider is the cache.
+     */
+    private void measureCell(int i, Cell cell) {
+        if (store.measureValid[i] && (cell.widget == null || cell.widget.isValid()) && cell.getEffectiveSizeProvider() == null) return;
+        if (cell.widget != null && cell.getEffectiveSizeProvider() == null) widgetQueries++;
+        cell.getSize(measured);
+        store.measured(i, measured);
+    }
+
+    /**
+     * Parallel solve, first step (EDT). Loads constraints, measures leaf widgets and takes insets of whole tree of nested composites.
+     * Nested composites are not measured, their cells get measurement from solved size of nested composite.
+     *
+     * @return count of cells in tree
+     */
+    int prepareTree() {
+        updateCells();
+        loadCells();
+        composite.getInsets(borderInsets);
+        nestedCount = 0;
+        int count = store.size;
+        for (int i = 0, n = store.size; i < n; i++) {
+            Cell cell = cells.get(i);
+            CompositeLayout child = nestedLayout(cell);
+            if (child == null) {
+                measureCell(i, cell);
+                continue;
+            }
+            if (nestedCount == nested.length) {
+                nested = Arrays.copyOf(nested, max(4, nestedCount * 2));
+                nestedCell = Arrays.copyOf(nestedCell, nested.length);
+            }
+            child.maxSize.setSize(child.composite.getMaximumSize());
+            nested[nestedCount] = child;
+            nestedCell[nestedCount++] = i;
+            count += child.prepareTree();
+        }
+        treeCells = count;
+        return count;
+    }
+
+    /**
+     * Parallel solve, second step (any thread). All nested composites must be already solved.
+     */
+    void solveTreeSize() {
+        for (int k = 0; k < nestedCount; k++) {
+            CompositeLayout child = nested[k];
+            cells.get(nestedCell[k]).getSize(measured, child.minSize, child.prefSize, child.maxSize);
+            store.measured(nestedCell[k], measured);
+        }
+        solveSize();
+    }
+
+    /**
+     * Parallel solve, third step (any thread). Nested composites are solved after it with size of their cells.
+     */
+    void solveTreeLayout(int width, int height) {
+        solveLayout(width, height);
+        solvedWidth = width;
+        solvedHeight = height;
+    }
+
+    /**
+     * Parallel solve, last step (EDT). Applies bounds of widgets in whole tree.
+     */
+    void applyTree() {
+        applyBounds();
+        for (int k = 0; k < nestedCount; k++) {
+            nested[k].applyTree();
         }
     }
 
+    int getTreeCells() {
+        return treeCells;
+    }
+
+    int getNestedCount() {
+        return nestedCount;
+    }
+
+    CompositeLayout getNested(int k) {
+        return nested[k];
+    }
+
+    int getNestedWidth(int k) {
+        return store.widgetWidth[nestedCell[k]];
+    }
+
+    int getNestedHeight(int k) {
+        return store.widgetHeight[nestedCell[k]];
+    }
+
+    private static CompositeLayout nestedLayout(Cell cell) {
+        Component widget = cell.widget;
+        if (!(widget instanceof Composite) || widget.isMinimumSizeSet() || widget.isPreferredSizeSet()) return null;
+        if (cell.getEffectiveSizeProvider() != null) return null;
+        if (((Composite) widget).isValidateRootMode()) return null; // its fixed min/pref/max size is measured as of widget
+        return ((Composite) widget).getInstalledLayout();
+    }
+
     private static int max(int value1, int value2) {
         return value1 > value2 ? value1 : value2;
     }
@@ -0,0 +1,133 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import java.awt.Dimension;
+
+/**
+ * LayoutEngine
+ * <p>
+ * Headless table layout of {@link LayoutNode}. Same algorithm as {@link Composite} uses, but on plain data,
+ * it doesn't need any Swing component nor event dispatch thread (AWT value classes Dimension and Insets are still used,
+ * cells are {@link Cell} instances). Cell border is decoration of composite, its insets are not added here.
+ * Nothing is cached between calls,
+ * node is read again in each call. Instance is not thread safe, it keeps its work arrays for next call
+ * (one instance per thread in batch jobs).
+ * </p>
+ * <pre>
+ * LayoutEngine engine = new LayoutEngine().pad(8).align(Cell.TOP | Cell.LEFT);
+ * Dimension pref = engine.getPrefSize(node);
+ * engine.layout(node, pref.width, pref.height);
+ * </pre>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public final class LayoutEngine {
+
+    private final LayoutSolver solver = new LayoutSolver();
+    private final Cell.Size size = new Cell.Size();
+    private int padTop, padLeft, padBottom, padRight;
+    private int align = Cell.CENTER;
+
+    public LayoutEngine pad(int pad) {
+        return pad(pad, pad, pad, pad);
+    }
+
+    public LayoutEngine pad(int top, int left, int bottom, int right) {
+        padTop = top;
+        padLeft = left;
+        padBottom = bottom;
+        padRight = right;
+        return this;
+    }
+
+    /**
+     * Alignment of table within node, when node is bigger than table (nothing expands).
+     */
+    public LayoutEngine align(int align) {
+        this.align = align;
+        return this;
+    }
+
+    public Dimension getMinSize(LayoutNode node) {
+        solveSize(node);
+        return new Dimension(solver.tableMinWidth, solver.tableMinHeight);
+    }
+
+    public Dimension getPrefSize(LayoutNode node) {
+        solveSize(node);
+        return new Dimension(solver.tablePrefWidth, solver.tablePrefHeight);
+    }
+
+    /**
+     * Computes bounds of cells for given size of node and passes them to {@link LayoutNode#setBounds(int, int, int, int, int)}.
+     */
+    public void layout(LayoutNode node, int width, int height) {
+        solveSize(node);
+        solver.solveLayout(width, height, align);
+        CellStore store = solver.store;
+        for (int i = 0, n = store.size; i < n; i++) {
+            node.setBounds(i, store.widgetX[i], store.widgetY[i], store.widgetWidth[i], store.widgetHeight[i]);
+        }
+    }
+
+    /**
+     * Columns of table of last node, valid after any call with node.
+     */
+    public int getColumns() {
+        return solver.columns;
+    }
+
+    /**
+     * Rows of table of last node, valid after any call with node.
+     */
+    public int getRows() {
+        return solver.rows;
+    }
+
+    private void solveSize(LayoutNode node) {
+        CellStore store = solver.store;
+        Cell.Size size = this.size;
+        int n = node.getCellCount();
+        store.clear();
+        store.ensureCapacity(n);
+        for (int i = 0; i < n; i++) {
+            Cell<?> cell = node.getCell(i);
+            store.add();
+            store.load(i, cell, null);
+            size.min.setSize(0, 0);
+            size.pref.setSize(0, 0);
+            size.max.setSize(0, 0);
+            node.getContentSize(i, size);
+            store.measured(i, cell.getSize(size, size.min, size.pref, size.max));
+        }
+        solver.insets(padTop, padLeft, padBottom, padRight);
+        solver.updateTopology();
+        solver.solveSize();
+    }
+}
@@ -0,0 +1,155 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+/**
+ * LayoutMemo
+ * <p>
+ * Bounded LRU of computed widget bounds (and cell geometry) of one composite, keyed by composite size, insets (border + pad) and align.
+ * Entries are valid while version of {@link CellStore} is the same (no cell was loaded, measured to different size
+ * or added/removed since), any change of version drops all entries. Returning to previously seen size
+ * (maximize/restore, collapsed side panel) then only copies stored bounds to store.
+ * </p>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+final class LayoutMemo {
+
+    private static final int KEY = 7;
+
+    private final int capacity;
+    private final int[] keys;
+    private final int[][] bounds;
+    private final boolean[] overlapping;
+    private final long[] used;
+    private int count;
+    private int version;
+    private long clock;
+
+    LayoutMemo(int capacity) {
+        this.capacity = capacity;
+        keys = new int[capacity * KEY];
+        bounds = new int[capacity][];
+        overlapping = new boolean[capacity];
+        used = new long[capacity];
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Copies stored bounds for given key to widget bounds of store and stored cell geometry (origin, column and row offsets) to solver.
+     *
+     * @return false if bounds for the key are not stored (layout must be solved)
+     */
+    boolean restore(LayoutSolver solver, int width, int height, int top, int left, int bottom, int right, int align) {
+        CellStore store = solver.store;
+        if (version != store.version) {
+            version = store.version;
+            count = 0;
+            return false;
+        }
+        int entry = find(width, height, top, left, bottom, right, align);
+        if (entry == -1) return false;
+        used[entry] = ++clock;
+        store.overlapping = overlapping[entry];
+        int[] stored = bounds[entry];
+        int[] widgetX = store.widgetX, widgetY = store.widgetY, widgetWidth = store.widgetWidth, widgetHeight = store.widgetHeight;
+        int n = store.size, j = 0;
+        for (int i = 0; i < n; i++, j += 4) {
+            widgetX[i] = stored[j];
+            widgetY[i] = stored[j + 1];
+            widgetWidth[i] = stored[j + 2];
+            widgetHeight[i] = stored[j + 3];
+        }
+        // topology is the same while version is the same, so column and row count match stored geometry
+        solver.tableX = stored[j++];
+        solver.tableY = stored[j++];
+        int columns = solver.columns + 1, rows = solver.rows + 1;
+        if (solver.columnX == null || solver.columnX.length < columns) solver.columnX = new int[columns];
+        if (solver.rowY == null || solver.rowY.length < rows) solver.rowY = new int[rows];
+        System.arraycopy(stored, j, solver.columnX, 0, columns);
+        System.arraycopy(stored, j + columns, solver.rowY, 0, rows);
+        return true;
+    }
+
+    /**
+     * Stores solved widget bounds and cell geometry for given key, least recently used entry is replaced when memo is full.
+     */
+    void put(LayoutSolver solver, int width, int height, int top, int left, int bottom, int right, int align) {
+        CellStore store = solver.store;
+        version = store.version;
+        int entry;
+        if (count < capacity) {
+            entry = count++;
+        } else {
+            entry = 0;
+            for (int k = 1; k < count; k++) {
+                if (used[k] < used[entry]) entry = k;
+            }
+        }
+        int key = entry * KEY;
+        keys[key] = width;
+        keys[key + 1] = height;
+        keys[key + 2] = top;
+        keys[key + 3] = left;
+        keys[key + 4] = bottom;
+        keys[key + 5] = right;
+        keys[key + 6] = align;
+        used[entry] = ++clock;
+        overlapping[entry] = store.overlapping;
+        int n = store.size, columns = solver.columns + 1, rows = solver.rows + 1;
+        int length = n * 4 + 2 + columns + rows;
+        int[] stored = bounds[entry];
+        if (stored == null || stored.length < length) stored = bounds[entry] = new int[length];
+        int[] widgetX = store.widgetX, widgetY = store.widgetY, widgetWidth = store.widgetWidth, widgetHeight = store.widgetHeight;
+        int j = 0;
+        for (int i = 0; i < n; i++, j += 4) {
+            stored[j] = widgetX[i];
+            stored[j + 1] = widgetY[i];
+            stored[j + 2] = widgetWidth[i];
+            stored[j + 3] = widgetHeight[i];
+        }
+        stored[j++] = solver.tableX;
+        stored[j++] = solver.tableY;
+        System.arraycopy(solver.columnX, 0, stored, j, columns);
+        System.arraycopy(solver.rowY, 0, stored, j + columns, rows);
+    }
+
+    private int find(int width, int height, int top, int left, int bottom, int right, int align) {
+        int[] keys = this.keys;
+        for (int entry = 0, key = 0; entry < count; entry++, key += KEY) {
+            if (keys[key] == width && keys[key + 1] == height && keys[key + 2] == top && keys[key + 3] == left
+                    && keys[key + 4] == bottom && keys[key + 5] == right && keys[key + 6] == align) {
+                return entry;
+            }
+        }
+        return -1;
+    }
+}
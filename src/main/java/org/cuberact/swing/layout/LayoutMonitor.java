@@ -0,0 +1,277 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.awt.Component;
+import java.awt.Container;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * LayoutMonitor
+ * <p>
+ * Opt-in instrumentation of composite layout passes. Disabled monitor costs one static field read per pass.
+ * Counters are available in process ({@link #getInstance()}, {@link Listener}) and as JMX MBean ({@link #registerMBean()}).
+ * </p>
+ * <pre>
+ * LayoutMonitor.enable(true);
+ * LayoutMonitor.registerMBean(); // org.cuberact.swing.layout:type=LayoutMonitor
+ * LayoutMonitor.addListener((composite, phase, nanos, cells, widgetQueries) -&gt; log(phase, nanos));
+ * </pre>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public final class LayoutMonitor implements LayoutMonitorMBean {
+
+    public static final String OBJECT_NAME = "org.cuberact.swing.layout:type=LayoutMonitor";
+    public static final int SLOWEST_COUNT = 10;
+
+    public enum Phase {
+        COMPUTE_SIZE, COMPUTE_LAYOUT
+    }
+
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * Called after each pass (on thread of the pass, usually EDT).
+         *
+         * @param nanos         inclusive duration of pass
+         * @param widgetQueries count of widgets asked for size in pass (zero for layout phase)
+         */
+        void passCompleted(Composite composite, Phase phase, long nanos, int cells, int widgetQueries);
+    }
+
+    static volatile boolean enabled;
+    private static final LayoutMonitor INSTANCE = new LayoutMonitor();
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private long computeSizeCount, computeLayoutCount;
+    private long computeSizeNanos, computeLayoutNanos;
+    private long maxComputeSizeNanos, maxComputeLayoutNanos;
+    private long widgetSizeQueries;
+    private int maxCells, maxDepth;
+    private final String[] slowestPath = new String[SLOWEST_COUNT];
+    private final long[] slowestNanos = new long[SLOWEST_COUNT];
+    private final Phase[] slowestPhase = new Phase[SLOWEST_COUNT];
+    private int slowestSize;
+
+    private LayoutMonitor() {
+        //singleton
+    }
+
+    public static LayoutMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    public static void addListener(Listener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(Listener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Registers monitor to platform MBean server (monitor must be enabled to collect data).
+     */
+    public static void registerMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Registration of " + OBJECT_NAME + " failed", e);
+        }
+    }
+
+    public static void unregisterMBean() {
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Unregistration of " + OBJECT_NAME + " failed", e);
+        }
+    }
+
+    static void passCompleted(Composite composite, Phase phase, long nanos, int cells, int widgetQueries) {
+        INSTANCE.record(composite, phase, nanos, cells, widgetQueries);
+        for (Listener listener : LISTENERS) {
+            listener.passCompleted(composite, phase, nanos, cells, widgetQueries);
+        }
+    }
+
+    private synchronized void record(Composite composite, Phase phase, long nanos, int cells, int widgetQueries) {
+        if (phase == Phase.COMPUTE_SIZE) {
+            computeSizeCount++;
+            computeSizeNanos += nanos;
+            maxComputeSizeNanos = Math.max(maxComputeSizeNanos, nanos);
+            widgetSizeQueries += widgetQueries;
+        } else {
+            computeLayoutCount++;
+            computeLayoutNanos += nanos;
+            maxComputeLayoutNanos = Math.max(maxComputeLayoutNanos, nanos);
+        }
+        maxCells = Math.max(maxCells, cells);
+        maxDepth = Math.max(maxDepth, depth(composite));
+        recordSlowest(composite, phase, nanos);
+    }
+
+    /**
+     * Keeps the slowest pass of each composite (identified by path, so monitor doesn't hold composites), sorted from the slowest.
+     */
+    private void recordSlowest(Composite composite, Phase phase, long nanos) {
+        if (slowestSize == SLOWEST_COUNT && nanos <= slowestNanos[SLOWEST_COUNT - 1]) return;
+        String path = path(composite);
+        int index = -1;
+        for (int i = 0; i < slowestSize; i++) {
+            if (slowestPath[i].equals(path)) {
+                index = i;
+                break;
+            }
+        }
+        if (index == -1) {
+            index = slowestSize < SLOWEST_COUNT ? slowestSize++ : SLOWEST_COUNT - 1;
+        } else if (nanos <= slowestNanos[index]) {
+            return;
+        }
+        while (index > 0 && slowestNanos[index - 1] < nanos) {
+            slowestPath[index] = slowestPath[index - 1];
+            slowestNanos[index] = slowestNanos[index - 1];
+            slowestPhase[index] = slowestPhase[index - 1];
+            index--;
+        }
+        slowestPath[index] = path;
+        slowestNanos[index] = nanos;
+        slowestPhase[index] = phase;
+    }
+
+    private static int depth(Composite composite) {
+        int depth = 0;
+        for (Container parent = composite.getParent(); parent != null; parent = parent.getParent()) {
+            if (parent instanceof Composite) depth++;
+        }
+        return depth;
+    }
+
+    static String path(Component component) {
+        StringBuilder path = new StringBuilder();
+        for (Component c = component; c != null; c = c.getParent()) {
+            String name = c.getName() != null ? c.getName() : c.getClass().getSimpleName();
+            path.insert(0, c == component ? name : name + "/");
+        }
+        return path.toString();
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        enable(enabled);
+    }
+
+    public static void enable(boolean enabled) {
+        LayoutMonitor.enabled = enabled;
+    }
+
+    @Override
+    public synchronized long getComputeSizeCount() {
+        return computeSizeCount;
+    }
+
+    @Override
+    public synchronized long getComputeLayoutCount() {
+        return computeLayoutCount;
+    }
+
+    @Override
+    public synchronized long getComputeSizeNanos() {
+        return computeSizeNanos;
+    }
+
+    @Override
+    public synchronized long getComputeLayoutNanos() {
+        return computeLayoutNanos;
+    }
+
+    @Override
+    public synchronized long getMaxComputeSizeNanos() {
+        return maxComputeSizeNanos;
+    }
+
+    @Override
+    public synchronized long getMaxComputeLayoutNanos() {
+        return maxComputeLayoutNanos;
+    }
+
+    @Override
+    public synchronized long getWidgetSizeQueries() {
+        return widgetSizeQueries;
+    }
+
+    @Override
+    public synchronized int getMaxCells() {
+        return maxCells;
+    }
+
+    @Override
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    @Override
+    public synchronized String[] getSlowestComposites() {
+        String[] result = new String[slowestSize];
+        for (int i = 0; i < slowestSize; i++) {
+            result[i] = slowestNanos[i] + " " + slowestPhase[i] + " " + slowestPath[i];
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void reset() {
+        computeSizeCount = 0;
+        computeLayoutCount = 0;
+        computeSizeNanos = 0;
+        computeLayoutNanos = 0;
+        maxComputeSizeNanos = 0;
+        maxComputeLayoutNanos = 0;
+        widgetSizeQueries = 0;
+        maxCells = 0;
+        maxDepth = 0;
+        slowestSize = 0;
+    }
+}
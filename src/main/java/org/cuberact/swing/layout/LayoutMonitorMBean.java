@@ -0,0 +1,70 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+/**
+ * LayoutMonitorMBean
+ * <p>
+ * JMX view of {@link LayoutMonitor}. Times are in nanoseconds and they are inclusive (size computation of nested composites
+ * is part of size computation of parent, size computation is part of layout computation when sizes were invalid).
+ * </p>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public interface LayoutMonitorMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getComputeSizeCount();
+
+    long getComputeLayoutCount();
+
+    long getComputeSizeNanos();
+
+    long getComputeLayoutNanos();
+
+    long getMaxComputeSizeNanos();
+
+    long getMaxComputeLayoutNanos();
+
+    long getWidgetSizeQueries();
+
+    int getMaxCells();
+
+    int getMaxDepth();
+
+    /**
+     * Slowest composites (by the slowest pass), each item is "nanos phase path", path is made from component names
+     * (class names for unnamed components).
+     */
+    String[] getSlowestComposites();
+
+    void reset();
+}
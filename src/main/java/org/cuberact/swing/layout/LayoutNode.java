@@ -0,0 +1,64 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+/**
+ * LayoutNode
+ * <p>
+ * Plain data source for {@link LayoutEngine}. Node supplies constraints and content sizes of its cells and receives
+ * computed bounds, nothing else is needed, so layouts can be computed without Swing components
+ * (server side rendering of reports, unit tests, benchmarks, batch jobs).
+ * Cells are ordered row by row, row ends are marked by {@link Cell#rowEnd(boolean)} as in {@link Composite}.
+ * </p>
+ * <pre>
+ * Cell&lt;?&gt; name = new Cell&lt;&gt;(null, defaults).fillX();
+ * Cell&lt;?&gt; value = new Cell&lt;&gt;(null, defaults).expandX().fillX().rowEnd(true);
+ * </pre>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public interface LayoutNode {
+
+    int getCellCount();
+
+    /**
+     * Constraints of cell at given index, widget of returned cell is not used.
+     */
+    Cell<?> getCell(int index);
+
+    /**
+     * Writes min, pref and max size of content of cell to given size (zero for empty cell).
+     * Size constraints of cell (min, pref, max) are applied on top of it as usual.
+     */
+    void getContentSize(int index, Cell.Size size);
+
+    /**
+     * Receives computed bounds of content of cell, relative to origin of node.
+     */
+    void setBounds(int index, int x, int y, int width, int height);
+}
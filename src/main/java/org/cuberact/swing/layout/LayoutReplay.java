@@ -0,0 +1,93 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * LayoutReplay
+ * <p>
+ * Replays passes of layout trace ({@link LayoutTrace}) headless. Each pass is rebuilt as composite with fixed size widgets,
+ * laid out given count of times and resulting bounds are compared with recorded bounds (regression check on real data).
+ * </p>
+ * <pre>
+ * java -Djava.awt.headless=true -cp cuberact-swing-layout.jar org.cuberact.swing.layout.LayoutReplay screen.trace 100
+ * </pre>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public final class LayoutReplay {
+
+    private LayoutReplay() {
+        //static only
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: LayoutReplay <trace file> [repeat count]");
+            System.exit(2);
+        }
+        System.setProperty("java.awt.headless", "true");
+        int repeat = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        List<LayoutTrace.Pass> passes;
+        try (InputStream in = new FileInputStream(args[0])) {
+            passes = LayoutTrace.read(in);
+        }
+        int failed = 0;
+        long totalNanos = 0;
+        for (int p = 0; p < passes.size(); p++) {
+            LayoutTrace.Pass pass = passes.get(p);
+            Composite composite = pass.build();
+            long nanos = replay(composite, repeat);
+            totalNanos += nanos;
+            int mismatches = pass.countMismatches(composite);
+            if (mismatches > 0) failed++;
+            System.out.println(String.format("%5d %-8s %6d cells %10d ns/pass  %s", p, mismatches == 0 ? "OK" : mismatches + " DIFF",
+                    pass.cells, nanos / repeat, pass.path));
+        }
+        System.out.println(String.format("%d passes, %d with different bounds, %d ns/pass in average", passes.size(), failed,
+                passes.isEmpty() ? 0 : totalNanos / repeat / passes.size()));
+        if (failed > 0) System.exit(1);
+    }
+
+    /**
+     * Runs full pass (size computation with widget queries and layout) given count of times.
+     */
+    public static long replay(Composite composite, int repeat) {
+        CompositeLayout layout = composite.getCompositeLayout();
+        long start = System.nanoTime();
+        for (int i = 0; i < repeat; i++) {
+            layout.invalidateAllMeasures();
+            layout.layout();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,179 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import javax.swing.Timer;
+import java.awt.Component;
+import java.awt.Container;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * LayoutScheduler
+ * <p>
+ * Coalesces layout of composites to frame ticks. Revalidation of composite with scheduler (own or of parent composite)
+ * doesn't validate immediately, composite is collected and all collected composites are validated once in next tick
+ * (Swing timer on EDT). Validation starts at validate root of each composite, outermost first, and roots already
+ * validated by pass of its ancestor in the same tick are skipped. When validate root is not composite (JRootPane, JScrollPane, ...),
+ * it is validated by RepaintManager as usual, but layout of composites below it is postponed to the tick
+ * (see {@link Composite#validateTree()}), the tick then validates the outermost postponed composite.
+ * Statistics show how many requests were coalesced away.
+ * </p>
+ * <pre>
+ * LayoutScheduler scheduler = new LayoutScheduler(60);
+ * dashboard.layoutScheduler(scheduler);
+ * </pre>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public final class LayoutScheduler {
+
+    private final Timer timer;
+    private final Set<Composite> pending = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Set<Container> rootSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final List<Container> roots = new ArrayList<>();
+    private boolean running;
+    private long requests, layouts, frames;
+
+    public LayoutScheduler(int framesPerSecond) {
+        timer = new Timer(Math.max(1, 1000 / Math.max(1, framesPerSecond)), event -> flush());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Validates all collected composites now (EDT), e.g. before measuring or printing.
+     */
+    public void flush() {
+        timer.stop();
+        if (pending.isEmpty()) return;
+        frames++;
+        List<Container> roots = this.roots;
+        for (Composite composite : pending) {
+            Container root = getLayoutTarget(composite);
+            if (rootSet.add(root)) roots.add(root);
+        }
+        pending.clear();
+        rootSet.clear();
+        roots.sort((root1, root2) -> Integer.compare(getDepth(root1), getDepth(root2)));
+        running = true;
+        try {
+            for (Container root : roots) {
+                if (root.isValid()) continue; // validated by pass of its ancestor
+                layouts++;
+                root.validate();
+            }
+        } finally {
+            running = false;
+            roots.clear();
+        }
+    }
+
+    /**
+     * Count of revalidations of composites (duplicates too).
+     */
+    public long getRequests() {
+        return requests;
+    }
+
+    /**
+     * Count of validations really done (one per validate root and tick).
+     */
+    public long getLayouts() {
+        return layouts;
+    }
+
+    /**
+     * Count of ticks with any work.
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Count of requests which didn't cause own validation.
+     */
+    public long getCoalesced() {
+        return requests - layouts;
+    }
+
+    public void resetStatistics() {
+        requests = 0;
+        layouts = 0;
+        frames = 0;
+    }
+
+    /**
+     * Collects composite for next tick.
+     *
+     * @return false if scheduler is validating now (composite must be validated immediately)
+     */
+    boolean schedule(Composite composite) {
+        if (running) return false;
+        requests++;
+        pending.add(composite);
+        if (!timer.isRunning()) timer.start();
+        return true;
+    }
+
+    /**
+     * Validate root of composite while it is invalid. Validate root already validated by RepaintManager (composites below it
+     * were postponed) is replaced by the outermost invalid composite below it.
+     */
+    private static Container getLayoutTarget(Composite composite) {
+        Container root = getValidateRoot(composite);
+        if (!root.isValid()) return root;
+        Container target = root;
+        for (Container container = composite; container != root; container = container.getParent()) {
+            if (!container.isValid()) target = container;
+        }
+        return target;
+    }
+
+    /**
+     * Nearest validate root (composite itself included), outermost container if there is none.
+     */
+    private static Container getValidateRoot(Composite composite) {
+        Container root = composite;
+        for (Container container = composite; container != null; container = container.getParent()) {
+            if (container.isValidateRoot()) return container;
+            root = container;
+        }
+        return root;
+    }
+
+    private static int getDepth(Component component) {
+        int depth = 0;
+        for (Container parent = component.getParent(); parent != null; parent = parent.getParent()) {
+            depth++;
+        }
+        return depth;
+    }
+}
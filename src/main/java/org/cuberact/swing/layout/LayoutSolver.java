@@ -0,0 +1,597 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import static org.cuberact.swing.layout.CellStore.EXPAND_X;
+import static org.cuberact.swing.layout.CellStore.EXPAND_Y;
+import static org.cuberact.swing.layout.CellStore.FILL_X;
+import static org.cuberact.swing.layout.CellStore.FILL_Y;
+import static org.cuberact.swing.layout.CellStore.ROW_END;
+import static org.cuberact.swing.layout.CellStore.UNIFORM_X;
+import static org.cuberact.swing.layout.CellStore.UNIFORM_Y;
+import static org.cuberact.swing.layout.Cell.BOTTOM;
+import static org.cuberact.swing.layout.Cell.LEFT;
+import static org.cuberact.swing.layout.Cell.RIGHT;
+import static org.cuberact.swing.layout.Cell.TOP;
+
+/**
+ * LayoutSolver
+ * <p>
+ * Table layout algorithm over plain data of {@link CellStore}, it doesn't know widgets nor AWT.
+ * Constraints and measured sizes are loaded to store by adapter ({@link CompositeLayout} for composite, {@link LayoutEngine} for {@link LayoutNode}),
+ * solver computes topology, min/pref size of table and bounds of widgets. Insets are sum of border and pad of table.
+ * </p>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com), original made by Nathan Sweet
+ */
+final class LayoutSolver {
+
+    final CellStore store = new CellStore();
+    int columns, rows;
+    int maxRowspan; // cells of row can be reached from rows above it only through rowspan
+    int tableMinWidth, tableMinHeight;
+    int tablePrefWidth, tablePrefHeight;
+    private int insetTop, insetLeft, insetBottom, insetRight;
+    private int[] columnOwner, columnOwnerEnd;
+    private int[] columnMinWidth, rowMinHeight;
+    private int[] columnPrefWidth, rowPrefHeight;
+    private int[] columnWidth, rowHeight;
+    private boolean[] expandWidth, expandHeight;
+    private int[] columnWeightedWidth, rowWeightedHeight;
+    private int[] columnWeightedX, rowWeightedY;
+    // table origin and prefix sums of column widths / row heights of last solveLayout (cell geometry)
+    int tableX, tableY;
+    int[] columnX, rowY;
+    int[] areaCells; // result of findCells
+
+    void insets(int top, int left, int bottom, int right) {
+        insetTop = top;
+        insetLeft = left;
+        insetBottom = bottom;
+        insetRight = right;
+    }
+
+    /**
+     * Rebuilds grid topology (column, row and cell above of each cell) in one linear pass from loaded colspan, rowspan and row ends.
+     */
+    void updateTopology() {
+        store.version++;
+        int n = store.size;
+        int[] cellColumn = store.column, cellRow = store.row, cellColspan = store.colspan, cellRowspan = store.rowspan, cellAbove = store.above;
+        byte[] flags = store.flags;
+        int maxColumns = 0;
+        for (int i = 0; i < n; i++) {
+            maxColumns += max(0, cellColspan[i]);
+        }
+        // Each column remembers the last cell covering it and the row where this cell ends (rowspan).
+        columnOwner = ensureSize(columnOwner, maxColumns);
+        columnOwnerEnd = ensureSize(columnOwnerEnd, maxColumns);
+        columns = 0;
+        rows = 0;
+        maxRowspan = 1;
+        int row = 0, column = 0;
+        for (int i = 0; i < n; i++) {
+            while (column < maxColumns && columnOwnerEnd[column] > row) { // column joined by rowspan from row above
+                column++;
+            }
+            int colspan = cellColspan[i], rowspan = cellRowspan[i];
+            cellColumn[i] = column;
+            cellRow[i] = row;
+            // Link cell to the cell covering the same column in the row above.
+            cellAbove[i] = row > 0 && column < maxColumns && columnOwnerEnd[column] == row ? columnOwner[column] : -1;
+            for (int spanned = column, end = min(column + colspan, maxColumns); spanned < end; spanned++) {
+                columnOwner[spanned] = i;
+                columnOwnerEnd[spanned] = row + rowspan;
+            }
+            column += colspan;
+            columns = max(columns, column);
+            rows = max(rows, row + rowspan);
+            maxRowspan = max(maxRowspan, rowspan);
+            if ((flags[i] & ROW_END) != 0) {
+                row++;
+                column = 0;
+            }
+        }
+    }
+
+    /**
+     * Computes min and pref size of table from loaded constraints and measured sizes.
+     */
+    @SuppressWarnings("Duplicates")
+    void solveSize() {
+        columnMinWidth = ensureSize(columnMinWidth, columns);
+        rowMinHeight = ensureSize(rowMinHeight, rows);
+        columnPrefWidth = ensureSize(columnPrefWidth, columns);
+        rowPrefHeight = ensureSize(rowPrefHeight, rows);
+        expandWidth = ensureSize(expandWidth, columns);
+        expandHeight = ensureSize(expandHeight, rows);
+        CellStore s = store;
+        int n = s.size;
+        int[] cellColumn = s.column, cellRow = s.row, colspan = s.colspan, rowspan = s.rowspan;
+        int[] computedPadTop = s.computedPadTop, computedPadLeft = s.computedPadLeft;
+        int[] computedPadBottom = s.computedPadBottom, computedPadRight = s.computedPadRight;
+        int[] minWidth = s.minWidth, minHeight = s.minHeight, prefWidth = s.prefWidth, prefHeight = s.prefHeight;
+        byte[] flags = s.flags;
+        int spaceRightLast = 0;
+        for (int i = 0; i < n; i++) {
+            int column = cellColumn[i], row = cellRow[i];
+            // Collect columns/rows that expand.
+            if (rowspan[i] == 1 && (flags[i] & EXPAND_Y) != 0) {
+                expandHeight[row] = true;
+            }
+            if (colspan[i] == 1 && (flags[i] & EXPAND_X) != 0) {
+                expandWidth[column] = true;
+            }
+            // Compute combined padding/spacing for cells. Spacing between widgets isn't additive, the larger is used. Also, no spacing around edges.
+            computedPadLeft[i] = s.padLeft[i] + (column == 0 ? 0 : max(0, s.spaceLeft[i] - spaceRightLast));
+            computedPadTop[i] = s.padTop[i];
+            int above = s.above[i];
+            if (above != -1) {
+                computedPadTop[i] += max(0, s.spaceTop[i] - s.spaceBottom[above]);
+            }
+            int spaceRight = s.spaceRight[i];
+            computedPadRight[i] = s.padRight[i] + ((column + colspan[i]) == columns ? 0 : spaceRight);
+            computedPadBottom[i] = s.padBottom[i] + (row + rowspan[i] == rows ? 0 : s.spaceBottom[i]);
+            spaceRightLast = spaceRight;
+            // Determine minimum and preferred cell sizes.
+            if (colspan[i] == 1) { // Spanned column min and pref width is add later.
+                int hPadding = computedPadLeft[i] + computedPadRight[i];
+                columnPrefWidth[column] = max(columnPrefWidth[column], prefWidth[i] + hPadding);
+                columnMinWidth[column] = max(columnMinWidth[column], minWidth[i] + hPadding);
+            }
+            if (rowspan[i] == 1) { // Spanned row min and pref height is add later.
+                int vPadding = computedPadTop[i] + computedPadBottom[i];
+                rowPrefHeight[row] = max(rowPrefHeight[row], prefHeight[i] + vPadding);
+                rowMinHeight[row] = max(rowMinHeight[row], minHeight[i] + vPadding);
+            }
+        }
+        // Colspan with expand will expand all spanned columns if none of the spanned columns have expand.
+        outer:
+        for (int i = 0; i < n; i++) {
+            if ((flags[i] & EXPAND_X) == 0) continue;
+            for (int column = cellColumn[i], nn = column + colspan[i]; column < nn; column++) {
+                if (expandWidth[column]) continue outer;
+            }
+            for (int column = cellColumn[i], nn = column + colspan[i]; column < nn; column++) {
+                expandWidth[column] = true;
+            }
+        }
+        // Rowspan with expand will expand all spanned rows if none of the spanned rows have expand.
+        outer:
+        for (int i = 0; i < n; i++) {
+            if ((flags[i] & EXPAND_Y) == 0) continue;
+            for (int row = cellRow[i], nn = row + rowspan[i]; row < nn; row++) {
+                if (expandHeight[row]) continue outer;
+            }
+            for (int row = cellRow[i], nn = row + rowspan[i]; row < nn; row++) {
+                expandHeight[row] = true;
+            }
+        }
+        // Distribute any additional min and pref width add by colspanned cells to the columns spanned.
+        for (int i = 0; i < n; i++) {
+            int span = colspan[i];
+            if (span == 1) continue;
+            int spannedMinWidth = -(computedPadLeft[i] + computedPadRight[i]), spannedPrefWidth = spannedMinWidth;
+            // Distribute extra space using expand, if any columns have expand.
+            int totalExpandWidth = 0;
+            for (int column = cellColumn[i], nn = column + span; column < nn; column++) {
+                spannedMinWidth += columnMinWidth[column];
+                spannedPrefWidth += columnPrefWidth[column];
+                totalExpandWidth += expandWidth[column] ? 1 : 0;
+            }
+            int extraMinWidth = max(0, minWidth[i] - spannedMinWidth);
+            int extraPrefWidth = max(0, prefWidth[i] - spannedPrefWidth);
+            for (int column = cellColumn[i], nn = column + span; column < nn; column++) {
+                float ratio = totalExpandWidth == 0 ? 1f / span : expandWidth[column] ? 1 / (float) totalExpandWidth : 0;
+                columnMinWidth[column] += (int) (extraMinWidth * ratio);
+                columnPrefWidth[column] += (int) (extraPrefWidth * ratio);
+            }
+        }
+        // Distribute any additional min and pref height add by rowspanned cells to the rows spanned.
+        for (int i = 0; i < n; i++) {
+            int span = rowspan[i];
+            if (span == 1) continue;
+            int spannedMinHeight = -(computedPadTop[i] + computedPadBottom[i]), spannedPrefHeight = spannedMinHeight;
+            // Distribute extra space using expand, if any rows have expand.
+            int totalExpandHeight = 0;
+            for (int row = cellRow[i], nn = row + span; row < nn; row++) {
+                spannedMinHeight += rowMinHeight[row];
+                spannedPrefHeight += rowPrefHeight[row];
+                totalExpandHeight += expandHeight[row] ? 1 : 0;
+            }
+            int extraMinHeight = max(0, minHeight[i] - spannedMinHeight);
+            int extraPrefHeight = max(0, prefHeight[i] - spannedPrefHeight);
+            for (int row = cellRow[i], nn = row + span; row < nn; row++) {
+                float ratio = totalExpandHeight == 0 ? 1f / span : expandHeight[row] ? 1 / (float) totalExpandHeight : 0;
+                rowMinHeight[row] += (int) (extraMinHeight * ratio);
+                rowPrefHeight[row] += (int) (extraPrefHeight * ratio);
+            }
+        }
+        // Collect uniform size.
+        int uniformMinWidth = 0, uniformMinHeight = 0;
+        int uniformPrefWidth = 0, uniformPrefHeight = 0;
+        for (int i = 0; i < n; i++) {
+            // Collect uniform sizes.
+            if ((flags[i] & UNIFORM_X) != 0 && colspan[i] == 1) {
+                int hpadding = computedPadLeft[i] + computedPadRight[i];
+                uniformMinWidth = max(uniformMinWidth, columnMinWidth[cellColumn[i]] - hpadding);
+                uniformPrefWidth = max(uniformPrefWidth, columnPrefWidth[cellColumn[i]] - hpadding);
+            }
+            if ((flags[i] & UNIFORM_Y) != 0 && rowspan[i] == 1) {
+                int vpadding = computedPadTop[i] + computedPadBottom[i];
+                uniformMinHeight = max(uniformMinHeight, rowMinHeight[cellRow[i]] - vpadding);
+                uniformPrefHeight = max(uniformPrefHeight, rowPrefHeight[cellRow[i]] - vpadding);
+            }
+        }
+        // Size uniform cells to the same width/height.
+        if (uniformPrefWidth > 0 || uniformPrefHeight > 0) {
+            for (int i = 0; i < n; i++) {
+                if (uniformPrefWidth > 0 && (flags[i] & UNIFORM_X) != 0 && colspan[i] == 1) {
+                    int hPadding = computedPadLeft[i] + computedPadRight[i];
+                    columnMinWidth[cellColumn[i]] = uniformMinWidth + hPadding;
+                    columnPrefWidth[cellColumn[i]] = uniformPrefWidth + hPadding;
+                }
+                if (uniformPrefHeight > 0 && (flags[i] & UNIFORM_Y) != 0 && rowspan[i] == 1) {
+                    int vPadding = computedPadTop[i] + computedPadBottom[i];
+                    rowMinHeight[cellRow[i]] = uniformMinHeight + vPadding;
+                    rowPrefHeight[cellRow[i]] = uniformPrefHeight + vPadding;
+                }
+            }
+        }
+        // Determine composite min and pref size.
+        tableMinWidth = 0;
+        tableMinHeight = 0;
+        tablePrefWidth = 0;
+        tablePrefHeight = 0;
+        for (int i = 0; i < columns; i++) {
+            tableMinWidth += columnMinWidth[i];
+            tablePrefWidth += columnPrefWidth[i];
+        }
+        for (int i = 0; i < rows; i++) {
+            tableMinHeight += rowMinHeight[i];
+            tablePrefHeight += max(rowMinHeight[i], rowPrefHeight[i]);
+        }
+
+        int hPadding = insetLeft + insetRight;
+        int vPadding = insetTop + insetBottom;
+        tableMinWidth = tableMinWidth + hPadding;
+        tableMinHeight = tableMinHeight + vPadding;
+        tablePrefWidth = max(tablePrefWidth + hPadding, tableMinWidth);
+        tablePrefHeight = max(tablePrefHeight + vPadding, tableMinHeight);
+    }
+
+    /**
+     * Computes bounds of widgets for given table size. Size must be solved before.
+     */
+    @SuppressWarnings("Duplicates")
+    void solveLayout(int width, int height, int align) {
+        int hPadding = insetLeft + insetRight;
+        int vPadding = insetTop + insetBottom;
+        columnWidth = ensureSize(columnWidth, columns);
+        rowHeight = ensureSize(rowHeight, rows);
+        CellStore s = store;
+        int n = s.size;
+        int[] cellColumn = s.column, cellRow = s.row, colspan = s.colspan, rowspan = s.rowspan;
+        int[] computedPadTop = s.computedPadTop, computedPadLeft = s.computedPadLeft;
+        int[] computedPadBottom = s.computedPadBottom, computedPadRight = s.computedPadRight;
+        int[] widgetX = s.widgetX, widgetY = s.widgetY, widgetWidth = s.widgetWidth, widgetHeight = s.widgetHeight;
+        int[] prefWidth = s.prefWidth, prefHeight = s.prefHeight, maxWidth = s.maxWidth, maxHeight = s.maxHeight;
+        int totalExpandWidth = 0, totalExpandHeight = 0;
+        for (int i = 0; i < columns; i++) {
+            totalExpandWidth += expandWidth[i] ? 1 : 0;
+        }
+        for (int i = 0; i < rows; i++) {
+            totalExpandHeight += expandHeight[i] ? 1 : 0;
+        }
+        // Size columns and rows between min and pref size using (preferred - min) size to weight distribution of extra space.
+        int[] columnWeightedWidth;
+        int totalGrowWidth = tablePrefWidth - tableMinWidth;
+        if (totalGrowWidth == 0) {
+            columnWeightedWidth = columnMinWidth;
+        } else {
+            int extraWidth = min(totalGrowWidth, max(0, width - tableMinWidth));
+            columnWeightedWidth = this.columnWeightedWidth = ensureSize(this.columnWeightedWidth, columns);
+            for (int i = 0; i < columns; i++) {
+                int growWidth = columnPrefWidth[i] - columnMinWidth[i];
+                float growRatio = growWidth / (float) totalGrowWidth;
+                columnWeightedWidth[i] = (int) (columnMinWidth[i] + extraWidth * growRatio);
+            }
+        }
+        int[] rowWeightedHeight;
+        int totalGrowHeight = tablePrefHeight - tableMinHeight;
+        if (totalGrowHeight == 0) {
+            rowWeightedHeight = rowMinHeight;
+        } else {
+            rowWeightedHeight = this.rowWeightedHeight = ensureSize(this.rowWeightedHeight, rows);
+            int extraHeight = min(totalGrowHeight, max(0, height - tableMinHeight));
+            for (int i = 0; i < rows; i++) {
+                int growHeight = rowPrefHeight[i] - rowMinHeight[i];
+                float growRatio = growHeight / (float) totalGrowHeight;
+                rowWeightedHeight[i] = (int) (rowMinHeight[i] + extraHeight * growRatio);
+            }
+        }
+        // Prefix sums of weighted column widths and row heights, spanned size is difference of two items.
+        int[] columnWeightedX = this.columnWeightedX = prefixSums(this.columnWeightedX, columnWeightedWidth, columns);
+        int[] rowWeightedY = this.rowWeightedY = prefixSums(this.rowWeightedY, rowWeightedHeight, rows);
+        // Determine widget and cell sizes (before expand or fill).
+        for (int i = 0; i < n; i++) {
+            int column = cellColumn[i], row = cellRow[i];
+            int spannedWeightedWidth = columnWeightedX[column + colspan[i]] - columnWeightedX[column];
+            int spannedWeightedHeight = rowWeightedY[row + rowspan[i]] - rowWeightedY[row];
+            widgetWidth[i] = min(spannedWeightedWidth - computedPadLeft[i] - computedPadRight[i], prefWidth[i]);
+            widgetHeight[i] = min(spannedWeightedHeight - computedPadTop[i] - computedPadBottom[i], prefHeight[i]);
+            if (colspan[i] == 1) {
+                columnWidth[column] = max(columnWidth[column], spannedWeightedWidth);
+            }
+            if (rowspan[i] == 1) {
+                rowHeight[row] = max(rowHeight[row], spannedWeightedHeight);
+            }
+        }
+        // Distribute remaining space to any expanding columns/rows.
+        if (totalExpandWidth > 0) {
+            int extra = width - hPadding;
+            for (int i = 0; i < columns; i++) {
+                extra -= columnWidth[i];
+            }
+            int used = 0;
+            int lastIndex = 0;
+            for (int i = 0; i < columns; i++) {
+                if (!expandWidth[i]) continue;
+                int amount = (int) (extra * (expandWidth[i] ? 1 : 0) / (float) totalExpandWidth);
+                columnWidth[i] += amount;
+                used += amount;
+                lastIndex = i;
+            }
+            columnWidth[lastIndex] += extra - used;
+        }
+        if (totalExpandHeight > 0) {
+            int extra = height - vPadding;
+            for (int i = 0; i < rows; i++) {
+                extra -= rowHeight[i];
+            }
+            int used = 0;
+            int lastIndex = 0;
+            for (int i = 0; i < rows; i++) {
+                if (!expandHeight[i]) continue;
+                int amount = (int) (extra * (expandHeight[i] ? 1 : 0) / (float) totalExpandHeight);
+                rowHeight[i] += amount;
+                used += amount;
+                lastIndex = i;
+            }
+            rowHeight[lastIndex] += extra - used;
+        }
+        // Distribute any additional width add by colSpanned cells to the columns spanned.
+        for (int i = 0; i < n; i++) {
+            int span = colspan[i];
+            if (span == 1) continue;
+            int extraWidth = 0;
+            for (int column = cellColumn[i], nn = column + span; column < nn; column++) {
+                extraWidth += columnWeightedWidth[column] - columnWidth[column];
+            }
+            extraWidth -= max(0, computedPadLeft[i] + computedPadRight[i]);
+            extraWidth /= span;
+            if (extraWidth > 0) {
+                for (int column = cellColumn[i], nn = column + span; column < nn; column++) {
+                    columnWidth[column] += extraWidth;
+                }
+            }
+        }
+        // Distribute any additional height add by rowSpanned cells to the rows spanned.
+        for (int i = 0; i < n; i++) {
+            int span = rowspan[i];
+            if (span == 1) continue;
+            int extraHeight = 0;
+            for (int row = cellRow[i], nn = row + span; row < nn; row++) {
+                extraHeight += rowWeightedHeight[row] - rowHeight[row];
+            }
+            extraHeight -= max(0, computedPadTop[i] + computedPadBottom[i]);
+            extraHeight /= span;
+            if (extraHeight > 0) {
+                for (int row = cellRow[i], nn = row + span; row < nn; row++) {
+                    rowHeight[row] += extraHeight;
+                }
+            }
+        }
+        // Prefix sums of final column widths and row heights (cell origins and composite size).
+        int[] columnX = this.columnX = prefixSums(this.columnX, columnWidth, columns);
+        int[] rowY = this.rowY = prefixSums(this.rowY, rowHeight, rows);
+        // Determine composite size.
+        int tableWidth = hPadding + columnX[columns], tableHeight = vPadding + rowY[rows];
+        // Position composite within the container.
+        int x = insetLeft;
+        if ((align & RIGHT) != 0) {
+            x += width - tableWidth;
+        } else if ((align & LEFT) == 0) { // Center
+            x += (width - tableWidth) / 2;
+        }
+        int y = insetTop;
+        if ((align & BOTTOM) != 0) {
+            y += height - tableHeight;
+        } else if ((align & TOP) == 0) { // Center
+            y += (height - tableHeight) / 2;
+        }
+        // Cells overlap only with negative column width or row height (composite smaller than its min size).
+        boolean overlapping = false;
+        for (int i = 0; i < columns && !overlapping; i++) {
+            overlapping = columnWidth[i] < 0;
+        }
+        for (int i = 0; i < rows && !overlapping; i++) {
+            overlapping = rowHeight[i] < 0;
+        }
+        tableX = x;
+        tableY = y;
+        // Position widgets within cells.
+        byte[] flags = s.flags;
+        int[] alignments = s.align;
+        for (int i = 0; i < n; i++) {
+            int column = cellColumn[i], row = cellRow[i];
+            int spannedCellWidth = columnX[column + colspan[i]] - columnX[column] - computedPadLeft[i] - computedPadRight[i];
+            int cellX = x + columnX[column] + computedPadLeft[i];
+            int cellY = y + rowY[row];
+            int spannedCellHeight = rowY[row + rowspan[i]] - rowY[row];
+            if ((flags[i] & FILL_X) != 0) {
+                widgetWidth[i] = spannedCellWidth;
+                if (maxWidth[i] > 0) {
+                    widgetWidth[i] = min(widgetWidth[i], maxWidth[i]);
+                }
+            }
+            if ((flags[i] & FILL_Y) != 0) {
+                widgetHeight[i] = spannedCellHeight - computedPadTop[i] - computedPadBottom[i];
+                if (maxHeight[i] > 0) {
+                    widgetHeight[i] = min(widgetHeight[i], maxHeight[i]);
+                }
+            }
+            int cellAlign = alignments[i];
+            if ((cellAlign & LEFT) != 0) {
+                widgetX[i] = cellX;
+            } else if ((cellAlign & RIGHT) != 0) {
+                widgetX[i] = cellX + spannedCellWidth - widgetWidth[i];
+            } else {
+                widgetX[i] = cellX + (spannedCellWidth - widgetWidth[i]) / 2;
+            }
+            if ((cellAlign & TOP) != 0) {
+                widgetY[i] = cellY + computedPadTop[i];
+            } else if ((cellAlign & BOTTOM) != 0) {
+                widgetY[i] = cellY + spannedCellHeight - widgetHeight[i] - computedPadBottom[i];
+            } else {
+                widgetY[i] = cellY + (spannedCellHeight - widgetHeight[i] + computedPadTop[i] - computedPadBottom[i]) / 2;
+            }
+            // Widget out of its cell can overlap widget of other cell.
+            if (!overlapping && widgetWidth[i] > 0 && widgetHeight[i] > 0) {
+                int cellLeft = x + columnX[column], cellTop = y + rowY[row];
+                overlapping = widgetX[i] < cellLeft || widgetX[i] + widgetWidth[i] > x + columnX[column + colspan[i]]
+                        || widgetY[i] < cellTop || widgetY[i] + widgetHeight[i] > y + rowY[row + rowspan[i]];
+            }
+        }
+        s.overlapping = overlapping;
+    }
+
+    /**
+     * Finds cells whose grid area (with spacing) intersects given area, from geometry of last solveLayout.
+     * Rows and columns are found by binary search, only cells of intersecting rows are tested,
+     * so cost is given by size of area, not by count of cells.
+     *
+     * @return count of cell indexes written to areaCells (in cell order), -1 if layout was not solved for current topology
+     */
+    int findCells(int x1, int y1, int x2, int y2) {
+        int[] columnX = this.columnX, rowY = this.rowY;
+        if (columnX == null || columnX.length <= columns || rowY.length <= rows) return -1;
+        int firstRow = firstEndAfter(rowY, rows, y1 - tableY), lastRow = firstStartFrom(rowY, rows, y2 - tableY);
+        int firstColumn = firstEndAfter(columnX, columns, x1 - tableX), lastColumn = firstStartFrom(columnX, columns, x2 - tableX);
+        if (firstRow >= lastRow || firstColumn >= lastColumn) return 0;
+        CellStore s = store;
+        int[] cellRow = s.row, cellColumn = s.column, rowspan = s.rowspan, colspan = s.colspan;
+        int from = firstCellInRow(cellRow, s.size, firstRow - maxRowspan + 1), to = firstCellInRow(cellRow, s.size, lastRow);
+        int[] result = areaCells = ensureCapacity(areaCells, to - from);
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            if (cellRow[i] + rowspan[i] <= firstRow) continue; // row above, not spanned to area
+            int column = cellColumn[i];
+            if (column < lastColumn && column + colspan[i] > firstColumn) result[count++] = i;
+        }
+        return count;
+    }
+
+    /**
+     * First row (column) whose end offset is after given offset.
+     */
+    static int firstEndAfter(int[] offsets, int count, int offset) {
+        int low = 0, high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (offsets[middle + 1] > offset) high = middle;
+            else low = middle + 1;
+        }
+        return low;
+    }
+
+    /**
+     * First row (column) whose start offset is at or after given offset (end of range).
+     */
+    static int firstStartFrom(int[] offsets, int count, int offset) {
+        int low = 0, high = count;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (offsets[middle] >= offset) high = middle;
+            else low = middle + 1;
+        }
+        return low;
+    }
+
+    /**
+     * First cell in given row or below (cells are in row order).
+     */
+    private static int firstCellInRow(int[] cellRow, int size, int row) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cellRow[middle] >= row) high = middle;
+            else low = middle + 1;
+        }
+        return low;
+    }
+
+    private static int[] ensureCapacity(int[] array, int size) {
+        return array == null || array.length < size ? new int[max(16, size)] : array;
+    }
+
+    private static int[] ensureSize(int[] array, int size) {
+        if (array == null || array.length < size) return new int[size];
+        for (int i = 0, n = array.length; i < n; i++) {
+            array[i] = 0;
+        }
+        return array;
+    }
+
+    private static boolean[] ensureSize(boolean[] array, int size) {
+        if (array == null || array.length < size) return new boolean[size];
+        for (int i = 0, n = array.length; i < n; i++) {
+            array[i] = false;
+        }
+        return array;
+    }
+
+    private static int[] prefixSums(int[] result, int[] values, int count) {
+        if (result == null || result.length < count + 1) result = new int[count + 1];
+        int sum = 0;
+        result[0] = 0;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+            result[i + 1] = sum;
+        }
+        return result;
+    }
+
+    private static int max(int value1, int value2) {
+        return value1 > value2 ? value1 : value2;
+    }
+
+    private static int min(int value1, int value2) {
+        return value1 < value2 ? value1 : value2;
+    }
+}
@@ -0,0 +1,324 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import javax.swing.border.EmptyBorder;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.cuberact.swing.layout.CellStore.EXPAND_X;
+import static org.cuberact.swing.layout.CellStore.EXPAND_Y;
+import static org.cuberact.swing.layout.CellStore.FILL_X;
+import static org.cuberact.swing.layout.CellStore.FILL_Y;
+import static org.cuberact.swing.layout.CellStore.ROW_END;
+import static org.cuberact.swing.layout.CellStore.UNIFORM_X;
+import static org.cuberact.swing.layout.CellStore.UNIFORM_Y;
+
+/**
+ * LayoutTrace
+ * <p>
+ * Records layout passes of composites to compact binary trace and reads them back for offline replay ({@link LayoutReplay}).
+ * Pass contains composite size, insets, pad and align, constraints of cells, sizes measured from widgets and resulting
+ * bounds of widgets. Recording is opt-in, disabled recorder costs one static field read per pass.
+ * Parallel layout passes ({@link Composite#parallelLayout(java.util.concurrent.ForkJoinPool)}) are not recorded.
+ * </p>
+ * <pre>
+ * LayoutTrace.startRecording(new File("screen.trace"));
+ * ... use the screen ...
+ * LayoutTrace.stopRecording();
+ * </pre>
+ * Format: magic, version, then passes (tag, path of composite, values as zigzag varints), end tag.
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public final class LayoutTrace {
+
+    private static final int MAGIC = 0x43534C54; // CSLT
+    private static final int VERSION = 1;
+    private static final int PASS_TAG = 1;
+    private static final int END_TAG = 0;
+
+    static volatile LayoutTrace recording;
+
+    private final DataOutputStream out;
+    private IOException failure;
+
+    private LayoutTrace(OutputStream out) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(out));
+        this.out.writeInt(MAGIC);
+        this.out.writeByte(VERSION);
+    }
+
+    public static synchronized void startRecording(File file) throws IOException {
+        startRecording(new FileOutputStream(file));
+    }
+
+    /**
+     * Starts recording of all layout passes to given stream (running recording is stopped first).
+     */
+    public static synchronized void startRecording(OutputStream out) throws IOException {
+        stopRecording();
+        recording = new LayoutTrace(out);
+    }
+
+    /**
+     * Stops recording and closes stream.
+     *
+     * @throws IOException first write failure of recording (recording stopped at that point) or close failure
+     */
+    public static synchronized void stopRecording() throws IOException {
+        LayoutTrace trace = recording;
+        if (trace == null) return;
+        recording = null;
+        synchronized (trace) {
+            try {
+                if (trace.failure == null) trace.out.writeByte(END_TAG);
+            } finally {
+                trace.out.close();
+            }
+            if (trace.failure != null) throw trace.failure;
+        }
+    }
+
+    public static boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Writes one pass, called by layout after computation of bounds. Failure stops recording, it doesn't break layout.
+     */
+    synchronized void record(Composite composite, CellStore store, Insets insets, Insets pad, int align) {
+        if (failure != null) return;
+        try {
+            DataOutputStream out = this.out;
+            out.writeByte(PASS_TAG);
+            out.writeUTF(LayoutMonitor.path(composite));
+            writeInt(composite.getWidth());
+            writeInt(composite.getHeight());
+            writeInsets(insets);
+            writeInsets(pad);
+            writeInt(align);
+            int n = store.size;
+            writeInt(n);
+            for (int i = 0; i < n; i++) {
+                out.writeByte(store.flags[i]);
+                writeInt(store.colspan[i]);
+                writeInt(store.rowspan[i]);
+                writeInt(store.align[i]);
+                writeInt(store.padTop[i]);
+                writeInt(store.padLeft[i]);
+                writeInt(store.padBottom[i]);
+                writeInt(store.padRight[i]);
+                writeInt(store.spaceTop[i]);
+                writeInt(store.spaceLeft[i]);
+                writeInt(store.spaceBottom[i]);
+                writeInt(store.spaceRight[i]);
+                writeInt(store.minWidth[i]);
+                writeInt(store.minHeight[i]);
+                writeInt(store.prefWidth[i]);
+                writeInt(store.prefHeight[i]);
+                writeInt(store.maxWidth[i]);
+                writeInt(store.maxHeight[i]);
+                writeInt(store.widgetX[i]);
+                writeInt(store.widgetY[i]);
+                writeInt(store.widgetWidth[i]);
+                writeInt(store.widgetHeight[i]);
+            }
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    private void writeInsets(Insets insets) throws IOException {
+        writeInt(insets.top);
+        writeInt(insets.left);
+        writeInt(insets.bottom);
+        writeInt(insets.right);
+    }
+
+    private void writeInt(int value) throws IOException {
+        int zigzag = (value << 1) ^ (value >> 31);
+        while ((zigzag & ~0x7F) != 0) {
+            out.writeByte((zigzag & 0x7F) | 0x80);
+            zigzag >>>= 7;
+        }
+        out.writeByte(zigzag);
+    }
+
+    /**
+     * Reads all passes of trace. Trace without end tag (application was killed) is read up to the last complete pass.
+     */
+    public static List<Pass> read(InputStream stream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+        if (in.readInt() != MAGIC) throw new IOException("Not a layout trace");
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Unsupported layout trace version " + version);
+        List<Pass> passes = new ArrayList<>();
+        try {
+            while (in.readUnsignedByte() == PASS_TAG) {
+                passes.add(new Pass(in));
+            }
+        } catch (EOFException e) {
+            //incomplete trace
+        }
+        return passes;
+    }
+
+    private static int readInt(DataInputStream in) throws IOException {
+        int zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    private static Insets readInsets(DataInputStream in) throws IOException {
+        return new Insets(readInt(in), readInt(in), readInt(in), readInt(in));
+    }
+
+    /**
+     * One recorded layout pass of one composite.
+     */
+    public static final class Pass {
+        public final String path;
+        public final int width, height;
+        public final Insets insets, pad;
+        public final int align;
+        public final int cells;
+        private final byte[] flags;
+        private final int[] values;
+        private static final int VALUES = 21;
+
+        private Pass(DataInputStream in) throws IOException {
+            path = in.readUTF();
+            width = readInt(in);
+            height = readInt(in);
+            insets = readInsets(in);
+            pad = readInsets(in);
+            align = readInt(in);
+            cells = readInt(in);
+            flags = new byte[cells];
+            values = new int[cells * VALUES];
+            for (int i = 0; i < cells; i++) {
+                flags[i] = in.readByte();
+                for (int v = 0; v < VALUES; v++) {
+                    values[i * VALUES + v] = readInt(in);
+                }
+            }
+        }
+
+        /**
+         * Builds composite with same constraints, widgets are replaced by components with recorded fixed sizes.
+         */
+        public Composite build() {
+            Composite composite = new Composite(new EmptyBorder(insets));
+            composite.pad(pad.top, pad.left, pad.bottom, pad.right);
+            composite.align(align);
+            for (int i = 0; i < cells; i++) {
+                int f = flags[i];
+                int o = i * VALUES;
+                int[] v = values;
+                Cell<ReplayWidget> cell = composite.addCell(new ReplayWidget(
+                        new Dimension(v[o + 11], v[o + 12]), new Dimension(v[o + 13], v[o + 14]), new Dimension(v[o + 15], v[o + 16])));
+                cell.fill((f & FILL_X) != 0, (f & FILL_Y) != 0);
+                cell.expand((f & EXPAND_X) != 0, (f & EXPAND_Y) != 0);
+                cell.uniform((f & UNIFORM_X) != 0, (f & UNIFORM_Y) != 0);
+                cell.colspan(v[o]).rowspan(v[o + 1]).align(v[o + 2]);
+                cell.pad(v[o + 3], v[o + 4], v[o + 5], v[o + 6]);
+                cell.space(v[o + 7], v[o + 8], v[o + 9], v[o + 10]);
+                cell.rowEnd((f & ROW_END) != 0);
+            }
+            composite.setSize(width, height);
+            return composite;
+        }
+
+        /**
+         * Recorded bounds of widget of cell.
+         */
+        public Rectangle getBounds(int cellIndex, Rectangle rect) {
+            int o = cellIndex * VALUES + 17;
+            rect.setBounds(values[o], values[o + 1], values[o + 2], values[o + 3]);
+            return rect;
+        }
+
+        /**
+         * Count of cells of laid out composite (built by {@link #build()}) with bounds different from recorded bounds.
+         */
+        public int countMismatches(Composite composite) {
+            Rectangle expected = new Rectangle();
+            int mismatches = 0;
+            for (int i = 0; i < cells; i++) {
+                if (!getBounds(i, expected).equals(composite.getComponent(i).getBounds())) mismatches++;
+            }
+            return mismatches;
+        }
+    }
+
+    private static final class ReplayWidget extends Component {
+        private static final long serialVersionUID = 1L;
+
+        private final Dimension min, pref, max;
+
+        private ReplayWidget(Dimension min, Dimension pref, Dimension max) {
+            this.min = min;
+            this.pref = pref;
+            this.max = max;
+        }
+
+        @Override
+        public Dimension getMinimumSize() {
+            return new Dimension(min);
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(pref);
+        }
+
+        @Override
+        public Dimension getMaximumSize() {
+            return new Dimension(max);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ParallelSolver
+ * <p>
+ * Solves tree of nested composites on {@link ForkJoinPool}. Constraints and sizes of leaf widgets are taken on EDT,
+ * sizes are solved bottom-up and layouts top-down (nested composites are independent, so they are forked) and bounds
+ * are applied back on EDT. EDT waits for the pool, Swing components are touched only on EDT.
+ * </p>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+final class ParallelSolver {
+
+    /**
+     * Trees with less cells are solved in current task, forking would cost more than solving.
+     */
+    private static final int FORK_THRESHOLD = 256;
+
+    private ParallelSolver() {
+        //static only
+    }
+
+    static void computeSize(CompositeLayout root, ForkJoinPool pool) {
+        root.prepareTree();
+        pool.invoke(new SizeTask(root));
+    }
+
+    static void layout(CompositeLayout root, ForkJoinPool pool, int width, int height) {
+        computeSize(root, pool);
+        pool.invoke(new LayoutTask(root, width, height));
+        root.applyTree();
+    }
+
+    private static void solveSize(CompositeLayout node) {
+        for (int k = 0, n = node.getNestedCount(); k < n; k++) {
+            solveSize(node.getNested(k));
+        }
+        node.solveTreeSize();
+    }
+
+    private static void solveLayout(CompositeLayout node, int width, int height) {
+        node.solveTreeLayout(width, height);
+        for (int k = 0, n = node.getNestedCount(); k < n; k++) {
+            solveLayout(node.getNested(k), node.getNestedWidth(k), node.getNestedHeight(k));
+        }
+    }
+
+    private static class SizeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CompositeLayout node;
+
+        private SizeTask(CompositeLayout node) {
+            this.node = node;
+        }
+
+        @Override
+        protected void compute() {
+            if (node.getTreeCells() < FORK_THRESHOLD) {
+                solveSize(node);
+                return;
+            }
+            SizeTask[] tasks = new SizeTask[node.getNestedCount()];
+            for (int k = 0; k < tasks.length; k++) {
+                tasks[k] = new SizeTask(node.getNested(k));
+            }
+            invokeAll(tasks);
+            node.solveTreeSize();
+        }
+    }
+
+    private static class LayoutTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CompositeLayout node;
+        private final int width, height;
+
+        private LayoutTask(CompositeLayout node, int width, int height) {
+            this.node = node;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        protected void compute() {
+            if (node.getTreeCells() < FORK_THRESHOLD) {
+                solveLayout(node, width, height);
+                return;
+            }
+            node.solveTreeLayout(width, height);
+            LayoutTask[] tasks = new LayoutTask[node.getNestedCount()];
+            for (int k = 0; k < tasks.length; k++) {
+                tasks[k] = new LayoutTask(node.getNested(k), node.getNestedWidth(k), node.getNestedHeight(k));
+            }
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import java.awt.Component;
+
+/**
+ * SizeProvider
+ * <p>
+ * Application side source of widget sizes (font metrics table, column width from server, constant per widget type...).
+ * Registered per {@link Composite} or per {@link Cell}, layout then doesn't ask widget for min, pref and max size.
+ * Size constraints of cell (min, pref, max) are applied on top of provided sizes as usual.
+ * Layout doesn't cache provided sizes, provider is asked in each size computation of composite.
+ * </p>
+ * <pre>
+ * composite.sizeProvider((widget, size) -&gt; {
+ *     if (!(widget instanceof JLabel)) return false; // widget is asked
+ *     size.min.setSize(0, 20);
+ *     size.pref.setSize(metrics.width(((JLabel) widget).getText()), 20);
+ *     size.max.setSize(Short.MAX_VALUE, 20);
+ *     return true;
+ * });
+ * </pre>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+@FunctionalInterface
+public interface SizeProvider {
+
+    /**
+     * Writes min, pref and max size of widget to given size.
+     *
+     * @return false if provider doesn't know the widget, widget sizes are used then
+     */
+    boolean getSize(Component widget, Cell.Size size);
+}
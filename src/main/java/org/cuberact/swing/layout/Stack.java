@@ -35,48 +35,141 @@ import java.awt.*;
  * <p>
  * based on EsotericSoftware/TableLayout. Added new features and improved for Swing.
  * </p>
+ * <p>
+ * Layers are children of stack, all visible layers get whole area of stack (overlays, loader states).
+ * Card-like use shows one layer by {@link #show(Component)}. Only visible layers are laid out and measured,
+ * size of stack is given by {@link Sizing} policy. Switching of layers invalidates parents as usual, parent composite
+ * measures the stack again and solves its layout only when size of stack changed.
+ * </p>
  *
  * @author Michal Nikodim (michal.nikodim@gmail.com), original made by Nathan Sweet
  * @see <a href="https://github.com/EsotericSoftware/tablelayout">EsotericSoftware/TableLayout</a>
  */
-class Stack extends JPanel {
-    Stack() {
-        super(new LayoutManager() {
-            public void layoutContainer(Container parent) {
-                int width = parent.getWidth();
-                int height = parent.getHeight();
-                for (int i = 0, n = parent.getComponentCount(); i < n; i++) {
-                    parent.getComponent(i).setLocation(0, 0);
-                    parent.getComponent(i).setSize(width, height);
-                }
-            }
+public class Stack extends JPanel {
 
-            public Dimension preferredLayoutSize(Container parent) {
-                Dimension size = new Dimension();
-                for (int i = 0, n = parent.getComponentCount(); i < n; i++) {
-                    Dimension pref = parent.getComponent(i).getPreferredSize();
-                    size.width = Math.max(size.width, pref.width);
-                    size.height = Math.max(size.height, pref.height);
-                }
-                return size;
-            }
+    public enum Sizing {
+        /**
+         * Largest size of all layers, hidden too (size doesn't change on switch, all layers are measured).
+         */
+        ALL,
+        /**
+         * Largest size of visible layers (default).
+         */
+        VISIBLE,
+        /**
+         * Largest size of visible layers ever seen, stack never shrinks (size doesn't change on switch back).
+         */
+        LARGEST,
+        /**
+         * Size of top visible layer only (first visible child).
+         */
+        TOP
+    }
 
-            public Dimension minimumLayoutSize(Container parent) {
-                Dimension size = new Dimension();
-                for (int i = 0, n = parent.getComponentCount(); i < n; i++) {
-                    Dimension min = parent.getComponent(i).getMinimumSize();
-                    size.width = Math.max(size.width, min.width);
-                    size.height = Math.max(size.height, min.height);
-                }
-                return size;
-            }
+    private Sizing sizing = Sizing.VISIBLE;
+    private final Dimension largestMinSize = new Dimension();
+    private final Dimension largestPrefSize = new Dimension();
+
+    public Stack(Component... layers) {
+        super(new StackLayout());
+        for (Component layer : layers) {
+            add(layer);
+        }
+    }
+
+    public Stack sizing(Sizing sizing) {
+        if (this.sizing != sizing) {
+            this.sizing = sizing;
+            largestMinSize.setSize(0, 0);
+            largestPrefSize.setSize(0, 0);
+            revalidate();
+        }
+        return this;
+    }
+
+    public Sizing getSizing() {
+        return sizing;
+    }
+
+    /**
+     * Shows given layer and hides all others.
+     */
+    public Stack show(Component layer) {
+        for (int i = 0, n = getComponentCount(); i < n; i++) {
+            Component component = getComponent(i);
+            if (component != layer) component.setVisible(false);
+        }
+        if (layer != null && layer.getParent() == this) layer.setVisible(true);
+        return this;
+    }
 
-            public void addLayoutComponent(String name, Component comp) {
+    /**
+     * Shows layer at given index and hides all others.
+     */
+    public Stack show(int index) {
+        return show(getComponent(index));
+    }
+
+    /**
+     * Top visible layer (first visible child), null if no layer is visible.
+     */
+    public Component getShown() {
+        for (int i = 0, n = getComponentCount(); i < n; i++) {
+            Component component = getComponent(i);
+            if (component.isVisible()) return component;
+        }
+        return null;
+    }
+
+    public int getShownIndex() {
+        Component shown = getShown();
+        return shown != null ? getComponentZOrder(shown) : -1;
+    }
+
+    private static class StackLayout implements LayoutManager {
+
+        public void layoutContainer(Container parent) {
+            int width = parent.getWidth();
+            int height = parent.getHeight();
+            for (int i = 0, n = parent.getComponentCount(); i < n; i++) {
+                Component layer = parent.getComponent(i);
+                if (layer.isVisible()) layer.setBounds(0, 0, width, height); // hidden layer gets bounds when shown
             }
+        }
 
-            public void removeLayoutComponent(Component comp) {
+        public Dimension preferredLayoutSize(Container parent) {
+            return layoutSize(parent, true);
+        }
+
+        public Dimension minimumLayoutSize(Container parent) {
+            return layoutSize(parent, false);
+        }
+
+        private Dimension layoutSize(Container parent, boolean preferred) {
+            Stack stack = (Stack) parent;
+            Sizing sizing = stack.sizing;
+            Dimension size = new Dimension();
+            for (int i = 0, n = parent.getComponentCount(); i < n; i++) {
+                Component layer = parent.getComponent(i);
+                if (sizing != Sizing.ALL && !layer.isVisible()) continue;
+                Dimension layerSize = preferred ? layer.getPreferredSize() : layer.getMinimumSize();
+                size.width = Math.max(size.width, layerSize.width);
+                size.height = Math.max(size.height, layerSize.height);
+                if (sizing == Sizing.TOP) break;
             }
-        });
-    }
+            if (sizing == Sizing.LARGEST) {
+                Dimension largest = preferred ? stack.largestPrefSize : stack.largestMinSize;
+                largest.width = Math.max(largest.width, size.width);
+                largest.height = Math.max(largest.height, size.height);
+                size.setSize(largest);
+            }
+            return size;
+        }
+
+        public void addLayoutComponent(String name, Component comp) {
+        }
 
+        public void removeLayoutComponent(Component comp) {
+        }
+    }
 }
@@ -0,0 +1,372 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Insets;
+import java.awt.LayoutManager;
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * VirtualComposite
+ * <p>
+ * Vertical list of rows for very large row counts (put it into JScrollPane). Every row is a {@link Composite} built by {@link RowFactory},
+ * so the row uses normal cell constraint API. Only rows intersecting the visible rectangle are created, bound and laid out,
+ * rows scrolled out of view are recycled. Rows never seen have estimated height, measured height replaces the estimate when row is shown.
+ * </p>
+ * <pre>
+ * VirtualComposite list = new VirtualComposite(new VirtualComposite.RowFactory() {
+ *     public int getRowCount() {
+ *         return persons.size();
+ *     }
+ *
+ *     public void createRow(Composite row) {
+ *         row.addCell(new JLabel()).expandX().align(Cell.LEFT);
+ *         row.addCell(new JLabel()).prefWidth(80);
+ *     }
+ *
+ *     public void bindRow(Composite row, int rowIndex) {
+ *         ((JLabel) row.getComponent(0)).setText(persons.get(rowIndex).getName());
+ *         ((JLabel) row.getComponent(1)).setText(persons.get(rowIndex).getAge());
+ *     }
+ * });
+ * </pre>
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class VirtualComposite extends JComponent implements Scrollable {
+
+    public interface RowFactory {
+        int getRowCount();
+
+        /**
+         * Called once for each row instance, creates cells of row (rows are recycled).
+         */
+        void createRow(Composite row);
+
+        /**
+         * Fills row instance with data of row index.
+         */
+        void bindRow(Composite row, int rowIndex);
+    }
+
+    private static final long serialVersionUID = 1L;
+
+    private final RowFactory rowFactory;
+    private final ArrayDeque<Composite> pool = new ArrayDeque<>();
+    private List<Composite> activeRows = new ArrayList<>();
+    private List<Composite> previousRows = new ArrayList<>();
+    private int activeFirst;
+    private int estimatedRowHeight = 20;
+    private int rowCount;
+    private int[] rowHeights = new int[0];
+    private int[] heightTree = new int[1]; // Fenwick tree of row heights, 1-based
+    private int totalHeight;
+    private int maxRowWidth;
+
+    public VirtualComposite(RowFactory rowFactory) {
+        this.rowFactory = rowFactory;
+        setLayout(new VirtualLayoutManager());
+        rowsChanged();
+    }
+
+    /**
+     * Height used for rows which were not shown yet.
+     */
+    public VirtualComposite estimatedRowHeight(int estimatedRowHeight) {
+        if (this.estimatedRowHeight != estimatedRowHeight) {
+            this.estimatedRowHeight = estimatedRowHeight;
+            rowsChanged();
+        }
+        return this;
+    }
+
+    public int getEstimatedRowHeight() {
+        return estimatedRowHeight;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Row count or data of many rows changed. All shown rows are bound again.
+     */
+    public void rowsChanged() {
+        for (Composite row : activeRows) {
+            release(row);
+        }
+        activeRows.clear();
+        activeFirst = 0;
+        rowCount = Math.max(0, rowFactory.getRowCount());
+        rowHeights = new int[rowCount];
+        heightTree = new int[rowCount + 1];
+        for (int i = 0; i < rowCount; i++) {
+            rowHeights[i] = estimatedRowHeight;
+            heightTree[i + 1] += estimatedRowHeight;
+            int parent = (i + 1) + ((i + 1) & -(i + 1));
+            if (parent <= rowCount) heightTree[parent] += heightTree[i + 1];
+        }
+        totalHeight = rowCount * estimatedRowHeight;
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Data of one row changed. Row is bound again if it is shown.
+     */
+    public void rowChanged(int rowIndex) {
+        int offset = rowIndex - activeFirst;
+        if (offset >= 0 && offset < activeRows.size()) {
+            rowFactory.bindRow(activeRows.get(offset), rowIndex);
+            revalidate();
+            repaint();
+        }
+    }
+
+    /**
+     * Y coordinate of row (estimated if rows above were not shown yet).
+     */
+    public int getRowY(int rowIndex) {
+        return getInsets().top + heightSum(rowIndex);
+    }
+
+    /**
+     * Index of row at y coordinate, -1 if there is no row.
+     */
+    public int getRowAt(int y) {
+        if (rowCount == 0) return -1;
+        y -= getInsets().top;
+        if (y < 0 || y >= totalHeight) return -1;
+        return rowAt(y);
+    }
+
+    /**
+     * Shown row instance, null if row is not shown.
+     */
+    public Composite getShownRow(int rowIndex) {
+        int offset = rowIndex - activeFirst;
+        return offset >= 0 && offset < activeRows.size() ? activeRows.get(offset) : null;
+    }
+
+    @Override
+    public void setBounds(int x, int y, int width, int height) {
+        boolean moved = x != getX() || y != getY();
+        super.setBounds(x, y, width, height);
+        if (moved && width == getWidth() && height == getHeight()) {
+            layoutRows(); // scrolled in viewport, show new rows before painting
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        if (orientation == SwingConstants.HORIZONTAL) return Math.max(1, estimatedRowHeight);
+        int top = visibleRect.y - getInsets().top;
+        if (rowCount == 0 || top < 0 || top >= totalHeight) return Math.max(1, estimatedRowHeight);
+        int row = rowAt(top);
+        int rowTop = heightSum(row);
+        if (direction < 0) {
+            return top > rowTop ? top - rowTop : (row > 0 ? rowHeights[row - 1] : 0);
+        }
+        return rowTop + rowHeights[row] - top;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        Container parent = getParent();
+        return parent instanceof JViewport && parent.getWidth() >= getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        Container parent = getParent();
+        return parent instanceof JViewport && parent.getHeight() > getPreferredSize().height;
+    }
+
+    private void layoutRows() {
+        Insets insets = getInsets();
+        int width = getWidth() - insets.left - insets.right;
+        Rectangle visible = getVisibleRect();
+        int top = Math.max(0, visible.y - insets.top);
+        int bottom = visible.y + visible.height - insets.top;
+        List<Composite> old = activeRows;
+        int oldFirst = activeFirst;
+        activeRows = previousRows;
+        activeRows.clear();
+        previousRows = old;
+        if (rowCount == 0 || bottom <= top || top >= totalHeight) {
+            releaseAll(old);
+            activeFirst = 0;
+            return;
+        }
+        int first = rowAt(top);
+        int estimatedLast = rowAt(Math.min(bottom, totalHeight - 1));
+        // rows certainly out of view go back to pool first, so they can be reused for new rows
+        for (int i = 0, n = old.size(); i < n; i++) {
+            int rowIndex = oldFirst + i;
+            if (rowIndex < first || rowIndex > estimatedLast) {
+                release(old.get(i));
+                old.set(i, null);
+            }
+        }
+        boolean heightChanged = false;
+        int y = heightSum(first);
+        int rowIndex = first;
+        while (rowIndex < rowCount && y < bottom) {
+            int offset = rowIndex - oldFirst;
+            Composite row = null;
+            if (offset >= 0 && offset < old.size()) {
+                row = old.get(offset);
+                old.set(offset, null);
+            }
+            if (row == null) row = obtain(rowIndex);
+            activeRows.add(row);
+            Dimension pref = row.getPreferredSize();
+            if (pref.height != rowHeights[rowIndex]) {
+                updateHeight(rowIndex, pref.height - rowHeights[rowIndex]);
+                heightChanged = true;
+            }
+            if (pref.width > maxRowWidth) {
+                maxRowWidth = pref.width;
+                heightChanged = true;
+            }
+            row.setBounds(insets.left, insets.top + y, width, pref.height);
+            row.validate();
+            y += pref.height;
+            rowIndex++;
+        }
+        releaseAll(old);
+        activeFirst = first;
+        if (heightChanged) revalidate(); // preferred size changed (measured rows replaced estimates)
+    }
+
+    private Composite obtain(int rowIndex) {
+        Composite row = pool.poll();
+        if (row == null) {
+            row = new Composite();
+            rowFactory.createRow(row);
+            super.addImpl(row, null, -1);
+        } else {
+            row.setVisible(true);
+        }
+        rowFactory.bindRow(row, rowIndex);
+        return row;
+    }
+
+    private void release(Composite row) {
+        row.setVisible(false);
+        pool.push(row);
+    }
+
+    private void releaseAll(List<Composite> rows) {
+        for (int i = 0, n = rows.size(); i < n; i++) {
+            Composite row = rows.get(i);
+            if (row != null) release(row);
+        }
+        rows.clear();
+    }
+
+    private int heightSum(int rowCountAbove) {
+        int sum = 0;
+        for (int i = Math.min(rowCountAbove, rowCount); i > 0; i -= i & -i) {
+            sum += heightTree[i];
+        }
+        return sum;
+    }
+
+    private void updateHeight(int rowIndex, int delta) {
+        rowHeights[rowIndex] += delta;
+        totalHeight += delta;
+        for (int i = rowIndex + 1; i <= rowCount; i += i & -i) {
+            heightTree[i] += delta;
+        }
+    }
+
+    private int rowAt(int y) {
+        int position = 0;
+        int remaining = y;
+        for (int step = Integer.highestOneBit(rowCount); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= rowCount && heightTree[next] <= remaining) {
+                position = next;
+                remaining -= heightTree[next];
+            }
+        }
+        return Math.min(position, rowCount - 1);
+    }
+
+    private class VirtualLayoutManager implements LayoutManager {
+
+        @Override
+        public Dimension preferredLayoutSize(Container parent) {
+            Insets insets = getInsets();
+            return new Dimension(maxRowWidth + insets.left + insets.right, totalHeight + insets.top + insets.bottom);
+        }
+
+        @Override
+        public Dimension minimumLayoutSize(Container parent) {
+            Insets insets = getInsets();
+            return new Dimension(insets.left + insets.right, insets.top + insets.bottom);
+        }
+
+        @Override
+        public void layoutContainer(Container parent) {
+            layoutRows();
+        }
+
+        @Override
+        public void addLayoutComponent(String name, Component comp) {
+            //nothing
+        }
+
+        @Override
+        public void removeLayoutComponent(Component comp) {
+            //nothing
+        }
+    }
+}
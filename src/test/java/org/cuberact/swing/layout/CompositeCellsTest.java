@@ -0,0 +1,185 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import org.junit.Test;
+
+import javax.swing.JLabel;
+import javax.swing.JTextArea;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Components of composite and cells must stay in the same order after batched removal followed by replace or insert.
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public class CompositeCellsTest {
+
+    @Test
+    public void removeThenReplaceWidget() {
+        Composite composite = new Composite();
+        JLabel a = new JLabel("A"), b = new JLabel("B"), c = new JLabel("C"), b2 = new JLabel("B2");
+        composite.addCell(a);
+        Cell<JLabel> cellB = composite.addCell(b);
+        composite.addCell(c);
+
+        composite.remove(a); // cell is only marked as removed
+        composite.replaceWidget(cellB, b2);
+
+        assertOrder(composite, b2, c);
+    }
+
+    @Test
+    public void removeCellsThenInsertCells() {
+        Composite composite = new Composite();
+        JLabel a = new JLabel("A"), b = new JLabel("B"), c = new JLabel("C"), d = new JLabel("D"), x = new JLabel("X");
+        composite.addCells(Arrays.asList(a, b, c, d));
+
+        assertEquals(2, composite.removeCells(0, 2));
+        composite.insertCells(1, Arrays.asList(x));
+
+        assertOrder(composite, c, x, d);
+    }
+
+    @Test
+    public void removeCellsByFilterThenReplaceWidget() {
+        Composite composite = new Composite();
+        JLabel a = new JLabel("A"), b = new JLabel("B"), c = new JLabel("C"), c2 = new JLabel("C2");
+        composite.addCell(a);
+        composite.addCell(b);
+        Cell<JLabel> cellC = composite.addCell(c);
+
+        composite.removeCells(cell -> cell.widget == b);
+        composite.replaceWidget(cellC, c2);
+
+        assertOrder(composite, a, c2);
+    }
+
+    @Test
+    public void removedRowEndIsMovedToPreviousCellWithoutRevalidation() throws Exception {
+        RepaintManager original = RepaintManager.currentManager(null);
+        NestedRevalidateTest.QueueRepaintManager queue = new NestedRevalidateTest.QueueRepaintManager();
+        try {
+            SwingUtilities.invokeAndWait(() -> {
+                RepaintManager.setCurrentManager(queue);
+                Composite composite = new Composite();
+                JLabel a = new JLabel("A"), b = new JLabel("B"), c = new JLabel("C");
+                composite.addCell(a);
+                composite.addCell(b);
+                composite.row();
+                composite.addCell(c);
+                NestedRevalidateTest.showInPanel(composite);
+                queue.validateQueued();
+
+                composite.remove(b); // row end of removed cell is moved to previous cell when cells are compacted
+                queue.validateQueued();
+                composite.getPreferredSize();
+                assertEquals("compaction in size query doesn't revalidate", 0, queue.queued());
+
+                composite.validate();
+                assertTrue(composite.getCells().get(0).isRowEnd());
+                assertTrue(c.getY() >= a.getY() + a.getHeight());
+            });
+        } finally {
+            SwingUtilities.invokeAndWait(() -> RepaintManager.setCurrentManager(original));
+        }
+    }
+
+    @Test
+    public void nullPropertyNameRemeasuresWidget() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            SizedLabel label = new SizedLabel();
+            Composite composite = new Composite();
+            composite.addCell(label);
+            NestedRevalidateTest.showInPanel(composite);
+            assertEquals(20, composite.getPreferredSize().width);
+
+            label.width = 50;
+            label.firePropertyChange(null, null, null); // unspecified properties changed
+            assertEquals(50, composite.getPreferredSize().width);
+        });
+    }
+
+    @Test
+    public void resizeMeasuresWrappedTextAgain() {
+        WrappedArea area = new WrappedArea();
+        Composite composite = new Composite();
+        composite.addCell(area).expandX().fillX();
+        composite.setSize(200, 100);
+        composite.doLayout(); // area was measured with zero width, now it is 200 wide
+
+        composite.setSize(300, 100);
+        assertEquals(area.getPreferredSize().height, composite.getPreferredSize().height);
+    }
+
+    /**
+     * Height of wrapped text depends on width of text area.
+     */
+    private static class WrappedArea extends JTextArea {
+        WrappedArea() {
+            setLineWrap(true);
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(50, 4000 / Math.max(10, getWidth()));
+        }
+    }
+
+    private static class SizedLabel extends JLabel {
+        int width = 20;
+
+        @Override
+        public Dimension getPreferredSize() {
+            return new Dimension(width, 10);
+        }
+
+        @Override
+        public void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+            super.firePropertyChange(propertyName, oldValue, newValue);
+        }
+    }
+
+    private static void assertOrder(Composite composite, Component... widgets) {
+        assertEquals(widgets.length, composite.getComponentCount());
+        assertEquals(widgets.length, composite.getCells().size());
+        for (int i = 0; i < widgets.length; i++) {
+            assertSame(widgets[i], composite.getComponent(i));
+            assertSame(widgets[i], composite.getCells().get(i).widget);
+            assertEquals(i, composite.getCells().get(i).index);
+        }
+    }
+}
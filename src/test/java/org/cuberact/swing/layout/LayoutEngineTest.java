@@ -0,0 +1,146 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import org.junit.Test;
+
+import javax.swing.JComponent;
+import javax.swing.border.TitledBorder;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Headless engine must lay out plain data as composite lays out its widgets.
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public class LayoutEngineTest {
+
+    @Test
+    public void sameLayoutAsComposite() {
+        Composite composite = new Composite();
+        composite.addCell(new Fixed(40, 20)).colspan(2).fillX();
+        composite.addCell(new Fixed(30, 50)).rowspan(2).fillY();
+        composite.row();
+        composite.addCell(new Fixed(10, 10)).expandX().fillX().pad(3);
+        composite.addCell(new Fixed(25, 15)).align(Cell.RIGHT | Cell.BOTTOM);
+        composite.row();
+        composite.addCell(new Fixed(60, 12)).colspan(3).expandY();
+        CompositeNode node = new CompositeNode(composite.getCells());
+        LayoutEngine engine = new LayoutEngine();
+
+        assertEquals(composite.getMinimumSize(), engine.getMinSize(node));
+        assertEquals(composite.getPreferredSize(), engine.getPrefSize(node));
+        for (Dimension size : new Dimension[]{composite.getPreferredSize(), new Dimension(300, 200), new Dimension(50, 40)}) {
+            composite.setSize(size);
+            composite.doLayout();
+            engine.layout(node, size.width, size.height);
+            for (int i = 0; i < node.bounds.length; i++) {
+                assertEquals("cell " + i + " at " + size, node.cells.get(i).getWidget().getBounds(), node.bounds[i]);
+            }
+        }
+    }
+
+    @Test
+    public void cellBorderNeedingComponentIsIgnored() {
+        Cell<?> cell = new Cell<>(null, new Cell()).border(new TitledBorder("title")); // TitledBorder needs component for insets
+        LayoutNode node = new LayoutNode() {
+            @Override
+            public int getCellCount() {
+                return 1;
+            }
+
+            @Override
+            public Cell<?> getCell(int index) {
+                return cell;
+            }
+
+            @Override
+            public void getContentSize(int index, Cell.Size size) {
+                size.min.setSize(10, 10);
+                size.pref.setSize(20, 10);
+                size.max.setSize(20, 10);
+            }
+
+            @Override
+            public void setBounds(int index, int x, int y, int width, int height) {
+            }
+        };
+        assertEquals(new Dimension(20, 10), new LayoutEngine().getPrefSize(node));
+    }
+
+    /**
+     * Cells and widget sizes of composite as plain data.
+     */
+    static class CompositeNode implements LayoutNode {
+        final List<Cell<? extends Component>> cells;
+        final Rectangle[] bounds;
+
+        CompositeNode(List<Cell<? extends Component>> cells) {
+            this.cells = cells;
+            this.bounds = new Rectangle[cells.size()];
+        }
+
+        @Override
+        public int getCellCount() {
+            return cells.size();
+        }
+
+        @Override
+        public Cell<?> getCell(int index) {
+            return cells.get(index);
+        }
+
+        @Override
+        public void getContentSize(int index, Cell.Size size) {
+            Component widget = cells.get(index).getWidget();
+            size.min.setSize(widget.getMinimumSize());
+            size.pref.setSize(widget.getPreferredSize());
+            size.max.setSize(widget.getMaximumSize());
+        }
+
+        @Override
+        public void setBounds(int index, int x, int y, int width, int height) {
+            bounds[index] = new Rectangle(x, y, width, height);
+        }
+    }
+
+    /**
+     * Widget of fixed pref size, min is half of it.
+     */
+    static class Fixed extends JComponent {
+        Fixed(int width, int height) {
+            setPreferredSize(new Dimension(width, height));
+            setMinimumSize(new Dimension(width / 2, height / 2));
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package org.cuberact.swing.layout;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Memo restores solved layout for remembered size and forgets everything when version of cell store changes.
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public class LayoutMemoTest {
+
+    @Test
+    public void restoresLayoutOfRememberedSize() {
+        LayoutSolver solver = createSolver();
+        LayoutMemo memo = new LayoutMemo(2);
+        solve(solver, 300, 100);
+        memo.put(solver, 300, 100, 0, 0, 0, 0, Cell.CENTER);
+        int[] bounds = bounds(solver.store);
+        int[] columnX = Arrays.copyOf(solver.columnX, solver.columns + 1), rowY = Arrays.copyOf(solver.rowY, solver.rows + 1);
+
+        solve(solver, 500, 200);
+        assertFalse(memo.restore(solver, 500, 200, 0, 0, 0, 0, Cell.CENTER));
+        assertTrue(memo.restore(solver, 300, 100, 0, 0, 0, 0, Cell.CENTER));
+
+        assertArrayEquals(bounds, bounds(solver.store));
+        assertArrayEquals(columnX, Arrays.copyOf(solver.columnX, solver.columns + 1));
+        assertArrayEquals(rowY, Arrays.copyOf(solver.rowY, solver.rows + 1));
+        assertFalse("other insets are other key", memo.restore(solver, 300, 100, 1, 0, 0, 0, Cell.CENTER));
+    }
+
+    @Test
+    public void changeOfStoreVersionDropsEntries() {
+        LayoutSolver solver = createSolver();
+        LayoutMemo memo = new LayoutMemo(2);
+        solve(solver, 300, 100);
+        memo.put(solver, 300, 100, 0, 0, 0, 0, Cell.CENTER);
+        assertTrue(memo.restore(solver, 300, 100, 0, 0, 0, 0, Cell.CENTER));
+
+        int version = solver.store.version;
+        solver.store.measured(0, size(45, 20)); // widget size changed
+        assertTrue(solver.store.version != version);
+        assertFalse(memo.restore(solver, 300, 100, 0, 0, 0, 0, Cell.CENTER));
+
+        solver.store.measured(0, size(40, 20)); // original size again, entries are already dropped
+        assertFalse(memo.restore(solver, 300, 100, 0, 0, 0, 0, Cell.CENTER));
+    }
+
+    @Test
+    public void sameMeasurementKeepsVersion() {
+        LayoutSolver solver = createSolver();
+        int version = solver.store.version;
+        solver.store.measured(0, size(40, 20));
+        assertEquals(version, solver.store.version);
+    }
+
+    @Test
+    public void leastRecentlyUsedEntryIsReplaced() {
+        LayoutSolver solver = createSolver();
+        LayoutMemo memo = new LayoutMemo(2);
+        for (int width : new int[]{200, 300}) {
+            solve(solver, width, 100);
+            memo.put(solver, width, 100, 0, 0, 0, 0, Cell.CENTER);
+        }
+        assertTrue(memo.restore(solver, 200, 100, 0, 0, 0, 0, Cell.CENTER)); // 300 is least recently used now
+        solve(solver, 400, 100);
+        memo.put(solver, 400, 100, 0, 0, 0, 0, Cell.CENTER);
+
+        assertTrue(memo.restore(solver, 200, 100, 0, 0, 0, 0, Cell.CENTER));
+        assertTrue(memo.restore(solver, 400, 100, 0, 0, 0, 0, Cell.CENTER));
+        assertFalse(memo.restore(solver, 300, 100, 0, 0, 0, 0, Cell.CENTER));
+    }
+
+    /**
+     * Two rows: fixed cell and expanded cell, one cell with colspan 2.
+     */
+    private static LayoutSolver createSolver() {
+        Cell defaults = new Cell();
+        Cell<?>[] cells = {new Cell<>(null, defaults), new Cell<>(null, defaults).expandX().fillX().rowEnd(true),
+                new Cell<>(null, defaults).colspan(2).fillY()};
+        Cell.Size[] sizes = {size(40, 20), size(60, 20), size(80, 30)};
+        LayoutSolver solver = new LayoutSolver();
+        CellStore store = solver.store;
+        store.ensureCapacity(cells.length);
+        for (int i = 0; i < cells.length; i++) {
+            store.add();
+            store.load(i, cells[i], null);
+            store.measured(i, sizes[i]);
+        }
+        solver.insets(0, 0, 0, 0);
+        solver.updateTopology();
+        solver.solveSize();
+        return solver;
+    }
+
+    private static void solve(LayoutSolver solver, int width, int height) {
+        solver.solveLayout(width, height, Cell.CENTER);
+    }
+
+    private static Cell.Size size(int width, int height) {
+        Cell.Size size = new Cell.Size();
+        size.min.setSize(width / 2, height / 2);
+        size.pref.setSize(width, height);
+        size.max.setSize(0, 0);
+        return size;
+    }
+
+    private static int[] bounds(CellStore store) {
+        int[] bounds = new int[store.size * 4];
+        for (int i = 0; i < store.size; i++) {
+            bounds[i * 4] = store.widgetX[i];
+            bounds[i * 4 + 1] = store.widgetY[i];
+            bounds[i * 4 + 2] = store.widgetWidth[i];
+            bounds[i * 4 + 3] = store.widgetHeight[i];
+        }
+        return bounds;
+    }
+}
@@ -0,0 +1,103 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package org.cuberact.swing.layout;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.swing.border.EmptyBorder;
+import java.awt.Insets;
+import java.awt.Rectangle;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.cuberact.swing.layout.LayoutEngineTest.Fixed;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Recorded pass must be read back with the same values and its replay must give recorded bounds.
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public class LayoutTraceTest {
+
+    @After
+    public void tearDown() throws Exception {
+        LayoutTrace.stopRecording();
+    }
+
+    @Test
+    public void recordAndReplay() throws Exception {
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        Composite composite = record(trace);
+
+        List<LayoutTrace.Pass> passes = LayoutTrace.read(new ByteArrayInputStream(trace.toByteArray()));
+        assertEquals(1, passes.size());
+        LayoutTrace.Pass pass = passes.get(0);
+        assertEquals(300, pass.width);
+        assertEquals(150, pass.height);
+        assertEquals(new Insets(2, 3, 4, 5), pass.insets);
+        assertEquals(new Insets(1, 1, 1, 1), pass.pad);
+        assertEquals(Cell.TOP | Cell.LEFT, pass.align);
+        assertEquals(composite.getComponentCount(), pass.cells);
+        Rectangle bounds = new Rectangle();
+        for (int i = 0; i < pass.cells; i++) {
+            assertEquals(composite.getComponent(i).getBounds(), pass.getBounds(i, bounds));
+        }
+
+        Composite replayed = pass.build();
+        replayed.doLayout();
+        assertEquals(0, pass.countMismatches(replayed));
+    }
+
+    @Test
+    public void traceWithoutEndIsReadToLastCompletePass() throws Exception {
+        ByteArrayOutputStream trace = new ByteArrayOutputStream();
+        record(trace);
+        byte[] bytes = trace.toByteArray();
+
+        assertEquals(1, LayoutTrace.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 1))).size()); // no end tag
+        assertEquals(0, LayoutTrace.read(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 2))).size()); // incomplete pass
+    }
+
+    private static Composite record(ByteArrayOutputStream trace) throws Exception {
+        Composite composite = new Composite(new EmptyBorder(2, 3, 4, 5));
+        composite.pad(1).align(Cell.TOP | Cell.LEFT);
+        composite.addCell(new Fixed(40, 20)).colspan(2).fillX().pad(2, 4, 2, 4);
+        composite.addCell(new Fixed(30, 60)).rowspan(2).fillY();
+        composite.row();
+        composite.addCell(new Fixed(20, 20)).expandX().uniform();
+        composite.addCell(new Fixed(20, 10)).uniform().align(Cell.RIGHT).space(3);
+        LayoutTrace.startRecording(trace);
+        composite.setSize(300, 150);
+        composite.doLayout();
+        LayoutTrace.stopRecording();
+        return composite;
+    }
+}
@@ -0,0 +1,207 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+
+package org.cuberact.swing.layout;
+
+import org.junit.After;
+import org.junit.Test;
+
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+import java.awt.BorderLayout;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeFalse;
+
+/**
+ * Change inside nested composite or stack must invalidate its ancestors, so their preferred size, validate and pack see it.
+ * Runs headless (except of pack), RepaintManager is replaced by one which collects invalid components and validates them on request.
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public class NestedRevalidateTest {
+
+    private final RepaintManager original = RepaintManager.currentManager(null);
+    private final QueueRepaintManager queue = new QueueRepaintManager();
+
+    @After
+    public void tearDown() throws Exception {
+        SwingUtilities.invokeAndWait(() -> RepaintManager.setCurrentManager(original));
+    }
+
+    @Test
+    public void nestedCompositeGrowsOutermostComposite() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            RepaintManager.setCurrentManager(queue);
+            JLabel label = new JLabel("small");
+            Composite inner = new Composite();
+            inner.addCell(label);
+            Composite outer = new Composite();
+            outer.addCell(inner);
+            JPanel panel = showInPanel(outer);
+            int height = outer.getHeight();
+
+            label.setFont(label.getFont().deriveFont(Font.BOLD, 30f));
+            label.setText("bigger text");
+            queue.validateQueued();
+
+            assertTrue("panel is validated", panel.isValid());
+            assertTrue(outer.getHeight() > height);
+            assertEquals(outer.getPreferredSize().height, outer.getHeight());
+            assertEquals(0, inner.getY());
+            assertEquals(inner.getPreferredSize().height, inner.getHeight());
+        });
+    }
+
+    @Test
+    public void stackShowGrowsOutermostComposite() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            RepaintManager.setCurrentManager(queue);
+            JLabel small = new JLabel("small");
+            JLabel big = new JLabel("big layer");
+            big.setFont(big.getFont().deriveFont(Font.BOLD, 30f));
+            Stack stack = new Stack(small, big).show(small);
+            Composite outer = new Composite();
+            outer.addCell(stack);
+            JPanel panel = showInPanel(outer);
+            int height = outer.getHeight();
+
+            stack.show(big); // Sizing.VISIBLE, stack grows
+            queue.validateQueued();
+
+            assertTrue("panel is validated", panel.isValid());
+            assertTrue(outer.getHeight() > height);
+            assertEquals(outer.getPreferredSize().height, outer.getHeight());
+            assertEquals(big.getPreferredSize().height, stack.getHeight());
+        });
+    }
+
+    @Test
+    public void nestedAddChangesPreferredSizeOfParents() throws Exception {
+        SwingUtilities.invokeAndWait(() -> {
+            RepaintManager.setCurrentManager(queue);
+            Composite inner = new Composite();
+            inner.addCell(new JLabel("first"));
+            Composite outer = new Composite();
+            outer.addCell(new JLabel("left"));
+            outer.addCell(inner);
+            JPanel panel = showInPanel(outer);
+            Dimension pref = outer.getPreferredSize();
+
+            inner.row();
+            JLabel added = new JLabel("added label");
+            inner.addCell(added);
+
+            assertTrue("outer composite is invalidated", !outer.isValid());
+            assertTrue(outer.getPreferredSize().height > pref.height);
+            panel.validate();
+            assertTrue("panel is validated", panel.isValid());
+            assertEquals(outer.getPreferredSize().height, outer.getHeight());
+            assertEquals(inner.getPreferredSize(), inner.getSize());
+            assertEquals(added.getPreferredSize(), added.getSize());
+        });
+    }
+
+    @Test
+    public void nestedAddIsSeenByPack() throws Exception {
+        assumeFalse(GraphicsEnvironment.isHeadless());
+        SwingUtilities.invokeAndWait(() -> {
+            Composite inner = new Composite();
+            inner.addCell(new JLabel("first"));
+            Composite outer = new Composite();
+            outer.addCell(inner);
+            JFrame frame = new JFrame();
+            try {
+                frame.setContentPane(outer);
+                frame.pack();
+                int height = outer.getHeight();
+
+                inner.row();
+                inner.addCell(new JLabel("added label"));
+                frame.pack();
+
+                assertTrue(outer.getHeight() > height);
+                assertEquals(outer.getPreferredSize(), outer.getSize());
+                assertEquals(inner.getPreferredSize(), inner.getSize());
+            } finally {
+                frame.dispose();
+            }
+        });
+    }
+
+    static JPanel showInPanel(Component content) {
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(content, BorderLayout.NORTH);
+        panel.addNotify(); // peer, without it no component is ever valid
+        panel.setSize(400, 300);
+        panel.validate();
+        return panel;
+    }
+
+    /**
+     * Collects invalid components as RepaintManager does and validates their validate roots on request.
+     */
+    static class QueueRepaintManager extends RepaintManager {
+        private final List<Component> invalid = new ArrayList<>();
+
+        @Override
+        public void addInvalidComponent(JComponent component) {
+            invalid.add(component);
+        }
+
+        int queued() {
+            return invalid.size();
+        }
+
+        void validateQueued() {
+            while (!invalid.isEmpty()) {
+                getValidateRoot(invalid.remove(0)).validate();
+            }
+        }
+
+        private static Container getValidateRoot(Component component) {
+            Container root = component instanceof Container ? (Container) component : component.getParent();
+            for (Container container = root; container != null; container = container.getParent()) {
+                if (container.isValidateRoot()) return container;
+                root = container;
+            }
+            return root;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package org.cuberact.swing.layout;
+
+import org.junit.Test;
+
+import javax.swing.JLabel;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Parallel solve of tree of nested composites must give the same bounds as sequential layout.
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public class ParallelLayoutTest {
+
+    @Test
+    public void parallelLayoutEqualsSequentialLayout() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Composite sequential = createTree();
+            Composite parallel = createTree().parallelLayout(pool);
+            sequential.addNotify(); // peer, validate lays out only invalid containers
+            parallel.addNotify();
+            assertEquals(sequential.getPreferredSize(), parallel.getPreferredSize());
+            assertEquals(sequential.getMinimumSize(), parallel.getMinimumSize());
+            for (Dimension size : new Dimension[]{sequential.getPreferredSize(), new Dimension(1200, 900), new Dimension(300, 200)}) {
+                layout(sequential, size);
+                layout(parallel, size);
+                assertSameBounds(sequential, parallel);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 8 nested composites with 40 cells each, enough cells to fork nested composites.
+     */
+    private static Composite createTree() {
+        Composite root = new Composite();
+        for (int k = 0; k < 8; k++) {
+            Composite nested = new Composite();
+            for (int i = 0; i < 40; i++) {
+                if (i % 4 == 0) nested.row();
+                Cell<JLabel> cell = nested.addCell(new JLabel("cell " + k + "." + i + (i % 3 == 0 ? " longer text" : "")));
+                if (i % 5 == 0) cell.expandX().fillX();
+                if (i % 7 == 0) cell.colspan(2);
+            }
+            root.addCell(nested).expand().fill();
+            if (k % 2 == 1) root.row();
+        }
+        return root;
+    }
+
+    private static void layout(Composite composite, Dimension size) {
+        composite.setSize(size);
+        composite.invalidate();
+        composite.validate();
+    }
+
+    private static void assertSameBounds(Container expected, Container actual) {
+        assertEquals(expected.getComponentCount(), actual.getComponentCount());
+        for (int i = 0; i < expected.getComponentCount(); i++) {
+            Component e = expected.getComponent(i), a = actual.getComponent(i);
+            assertEquals(e.getBounds(), a.getBounds());
+            if (e instanceof Container) assertSameBounds((Container) e, (Container) a);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package org.cuberact.swing.layout;
+
+import org.junit.Test;
+
+import static org.cuberact.swing.layout.LayoutEngineTest.Fixed;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Rowspan cells occupy columns of rows below them and their height is distributed to spanned rows.
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public class RowspanTest {
+
+    @Test
+    public void cellsOfNextRowSkipColumnsJoinedByRowspan() {
+        Composite composite = new Composite();
+        Fixed spanned = composite.addCell(new Fixed(30, 100)).rowspan(2).fillY().getWidget();
+        Fixed right = composite.addCell(new Fixed(20, 20)).getWidget();
+        composite.row();
+        Fixed below = composite.addCell(new Fixed(20, 20)).getWidget();
+        composite.row();
+        Fixed last = composite.addCell(new Fixed(20, 20)).getWidget();
+        layout(composite);
+
+        assertEquals(2, composite.getColumns());
+        assertEquals(3, composite.getRows());
+        assertEquals(right.getX(), below.getX()); // first column of second row is joined by rowspan
+        assertEquals(5, last.getX()); // third row starts in first column again (30 wide, widget centered)
+        assertEquals(100, last.getY());
+        assertEquals(0, spanned.getY());
+        assertEquals(100, spanned.getHeight());
+    }
+
+    @Test
+    public void extraHeightOfRowspanIsDividedEvenly() {
+        Composite composite = new Composite();
+        composite.addCell(new Fixed(30, 100)).rowspan(2).fillY();
+        Fixed first = composite.addCell(new Fixed(20, 20)).getWidget();
+        composite.row();
+        Fixed second = composite.addCell(new Fixed(20, 20)).getWidget();
+        layout(composite);
+
+        assertEquals(100, composite.getPreferredSize().height);
+        assertEquals(15, first.getY()); // rows are 50 high, 20 high widgets are centered
+        assertEquals(65, second.getY());
+    }
+
+    @Test
+    public void extraHeightOfRowspanGoesToExpandedRow() {
+        Composite composite = new Composite();
+        composite.addCell(new Fixed(30, 100)).rowspan(2).fillY();
+        Fixed first = composite.addCell(new Fixed(20, 20)).getWidget();
+        composite.row();
+        Fixed second = composite.addCell(new Fixed(20, 20)).expandY().fillY().getWidget();
+        layout(composite);
+
+        assertEquals(100, composite.getPreferredSize().height);
+        assertEquals(0, first.getY());
+        assertEquals(20, second.getY());
+        assertEquals(80, second.getHeight());
+    }
+
+    private static void layout(Composite composite) {
+        composite.setSize(composite.getPreferredSize());
+        composite.doLayout();
+    }
+}
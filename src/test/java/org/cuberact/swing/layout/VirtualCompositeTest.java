@@ -0,0 +1,122 @@
+/* ******************************************************************************
+ * Copyright (c) 2011, Nathan Sweet <nathan.sweet@gmail.com>
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *     * Redistributions of source code must retain the above copyright
+ *       notice, this list of conditions and the following disclaimer.
+ *     * Redistributions in binary form must reproduce the above copyright
+ *       notice, this list of conditions and the following disclaimer in the
+ *       documentation and/or other materials provided with the distribution.
+ *     * Neither the name of the <organization> nor the
+ *       names of its contributors may be used to endorse or promote products
+ *       derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND
+ * ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED
+ * WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL <COPYRIGHT HOLDER> BE LIABLE FOR ANY
+ * DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+ * (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES;
+ * LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND
+ * ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT
+ * (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ ******************************************************************************/
+package org.cuberact.swing.layout;
+
+import org.junit.Test;
+
+import java.awt.Dimension;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Row offsets (Fenwick prefix sums of row heights) and row lookup of virtual composite, with estimated and measured heights.
+ *
+ * @author Michal Nikodim (michal.nikodim@gmail.com)
+ */
+public class VirtualCompositeTest {
+
+    private static final int ROWS = 1000;
+    private static final int ESTIMATED = 20;
+
+    @Test
+    public void estimatedRows() {
+        VirtualComposite list = new VirtualComposite(new Rows(ROWS)).estimatedRowHeight(ESTIMATED);
+        for (int i = 0; i < ROWS; i++) {
+            assertEquals(i * ESTIMATED, list.getRowY(i));
+            assertEquals(i, list.getRowAt(i * ESTIMATED));
+            assertEquals(i, list.getRowAt(i * ESTIMATED + ESTIMATED - 1));
+        }
+        assertEquals(ROWS * ESTIMATED, list.getPreferredSize().height);
+        assertEquals(-1, list.getRowAt(-1));
+        assertEquals(-1, list.getRowAt(ROWS * ESTIMATED));
+    }
+
+    @Test
+    public void measuredHeightsReplaceEstimates() {
+        VirtualComposite list = new VirtualComposite(new Rows(ROWS)).estimatedRowHeight(ESTIMATED);
+        list.setBounds(0, 0, 200, 100);
+        list.doLayout(); // rows 0..5 are shown, their heights are 10, 20, 30, 10, 20, 30
+
+        assertNotNull(list.getShownRow(5));
+        assertNull(list.getShownRow(6));
+        int y = 0;
+        for (int i = 0; i < ROWS; i++) {
+            int height = i <= 5 ? Rows.height(i) : ESTIMATED;
+            assertEquals(y, list.getRowY(i));
+            assertEquals(i, list.getRowAt(y));
+            assertEquals(i, list.getRowAt(y + height - 1));
+            y += height;
+        }
+        assertEquals(y, list.getPreferredSize().height);
+        assertEquals(-1, list.getRowAt(y));
+    }
+
+    @Test
+    public void rowsChangedResetsHeights() {
+        Rows rows = new Rows(ROWS);
+        VirtualComposite list = new VirtualComposite(rows).estimatedRowHeight(ESTIMATED);
+        list.setBounds(0, 0, 200, 100);
+        list.doLayout();
+
+        rows.count = 10;
+        list.rowsChanged();
+        assertEquals(10, list.getRowCount());
+        assertEquals(9 * ESTIMATED, list.getRowY(9));
+        assertEquals(9, list.getRowAt(10 * ESTIMATED - 1));
+        assertEquals(-1, list.getRowAt(10 * ESTIMATED));
+    }
+
+    private static class Rows implements VirtualComposite.RowFactory {
+        int count;
+
+        Rows(int count) {
+            this.count = count;
+        }
+
+        static int height(int rowIndex) {
+            return 10 + rowIndex % 3 * 10;
+        }
+
+        @Override
+        public int getRowCount() {
+            return count;
+        }
+
+        @Override
+        public void createRow(Composite row) {
+            row.addCell(new LayoutEngineTest.Fixed(50, 10));
+        }
+
+        @Override
+        public void bindRow(Composite row, int rowIndex) {
+            LayoutEngineTest.Fixed widget = (LayoutEngineTest.Fixed) row.getComponent(0);
+            widget.setPreferredSize(new Dimension(50, height(rowIndex)));
+        }
+    }
+}